@@ -21,10 +21,12 @@ import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistryImpl;
 import com.ajjpj.asqlmapper.mapper.beans.primarykey.GuessingPkStrategyDecider;
+import com.ajjpj.asqlmapper.mapper.beans.primarykey.HiLoSequencePkStrategyDecider;
 import com.ajjpj.asqlmapper.mapper.beans.primarykey.PkStrategyDecider;
 import com.ajjpj.asqlmapper.mapper.beans.relations.*;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.DefaultTableNameExtractor;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.AdaptiveRelationLoading;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 
 /**
@@ -63,6 +65,9 @@ public class SqlMapperBuilder {
 
     private TableNameExtractor tableNameExtractor = new DefaultTableNameExtractor();
     private PkStrategyDecider pkStrategyDecider = new GuessingPkStrategyDecider();
+    private AOption<Integer> hiLoBlockSize = AOption.none();
+
+    private AOption<AdaptiveRelationLoading> adaptiveRelationLoading = AOption.empty();
 
     public SqlMapperBuilder withDefaultPkName(String defaultPkName) {
         this.defaultPkName = AOption.of(defaultPkName);
@@ -119,6 +124,18 @@ public class SqlMapperBuilder {
         return this;
     }
 
+    /**
+     * Allocates primary keys in blocks from the sequences that primary key columns draw their default values from,
+     *  see {@link HiLoSequencePkStrategyDecider}. Such sequences must be declared with {@code INCREMENT BY blockSize}.
+     */
+    public SqlMapperBuilder withHiLoSequences(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive");
+        }
+        this.hiLoBlockSize = AOption.some(blockSize);
+        return this;
+    }
+
     public SqlMapperBuilder withOneToManyResolver(OneToManyResolver resolver) {
         this.oneToManyResolver = resolver;
         return this;
@@ -132,6 +149,14 @@ public class SqlMapperBuilder {
         return this;
     }
 
+    /**
+     * Lets relations choose their loading strategy based on observed costs, see {@link AdaptiveRelationLoading}.
+     */
+    public SqlMapperBuilder withAdaptiveRelationLoading(AdaptiveRelationLoading adaptiveRelationLoading) {
+        this.adaptiveRelationLoading = AOption.some(adaptiveRelationLoading);
+        return this;
+    }
+
     private SqlEngine buildEngine() {
         SqlEngine result = SqlEngine.create();
 
@@ -153,11 +178,11 @@ public class SqlMapperBuilder {
         return new SqlMapper(buildEngine(), new BeanMappingRegistryImpl(
                 schemaRegistry,
                 tableNameExtractor,
-                pkStrategyDecider,
+                hiLoBlockSize.isDefined() ? new HiLoSequencePkStrategyDecider(pkStrategyDecider, hiLoBlockSize.get()) : pkStrategyDecider,
                 beanMetaDataRegistry,
                 oneToManyResolver,
                 manyToManyResolver,
                 toOneResolver),
-                schemaRegistry, tableNameExtractor);
+                schemaRegistry, tableNameExtractor, adaptiveRelationLoading);
     }
 }
@@ -8,6 +8,7 @@ import java.util.stream.Stream;
 
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 
@@ -25,6 +26,15 @@ public interface AQuery<T> {
      */
     AQuery<T> withInjectedProperty(InjectedProperty injectedProperty);
 
+    /**
+     * This method causes rows with the same identity (as determined by the {@link IdentityMap}) to be extracted
+     *  only once, sharing the resulting instance. The identity map is passed on to injected properties, so
+     *  to-one or to-many relations loaded by separate queries share their instances as well.<p>
+     *
+     * This is only safe for immutable result types.
+     */
+    AQuery<T> withIdentityMap(IdentityMap identityMap);
+
     T single(Connection conn);
     T single();
     AOption<T> optional(Connection conn);
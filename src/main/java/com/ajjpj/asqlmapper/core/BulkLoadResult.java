@@ -0,0 +1,161 @@
+package com.ajjpj.asqlmapper.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import com.ajjpj.acollections.AList;
+
+/**
+ * The outcome of a {@link BulkLoader}'s load: a report per worker, and the total elapsed time.
+ */
+public class BulkLoadResult {
+    private final AList<WorkerReport> workers;
+    private final Duration elapsed;
+
+    public BulkLoadResult (AList<WorkerReport> workers, Duration elapsed) {
+        this.workers = workers;
+        this.elapsed = elapsed;
+    }
+
+    public AList<WorkerReport> workers () {
+        return workers;
+    }
+
+    public Duration elapsed () {
+        return elapsed;
+    }
+
+    public long numRows () {
+        return workers.foldLeft(0L, (acc, w) -> acc + w.numRows());
+    }
+
+    public long numFailedRows () {
+        return workers.foldLeft(0L, (acc, w) -> acc + w.numFailedRows());
+    }
+
+    public boolean hasErrors () {
+        return workers.exists(w -> w.errors().nonEmpty());
+    }
+
+    /**
+     * @return the overall number of successfully loaded rows per second
+     */
+    public double rowsPerSecond () {
+        return perSecond(numRows(), elapsed);
+    }
+
+    private static double perSecond (long numRows, Duration elapsed) {
+        if (elapsed.isZero()) {
+            return 0.0;
+        }
+        return numRows * 1_000_000_000.0 / elapsed.toNanos();
+    }
+
+    @Override public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BulkLoadResult that = (BulkLoadResult) o;
+        return Objects.equals(workers, that.workers) &&
+                Objects.equals(elapsed, that.elapsed);
+    }
+
+    @Override public int hashCode () {
+        return Objects.hash(workers, elapsed);
+    }
+
+    @Override public String toString () {
+        return "BulkLoadResult{" +
+                "workers=" + workers +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+
+    /**
+     * A single worker's share of a load. Every chunk is committed separately, so a failed chunk only affects its own
+     *  rows, and there is one error per failed chunk (or for a failure to obtain the worker's connection).
+     */
+    public static class WorkerReport {
+        private final int workerIndex;
+        private final long numChunks;
+        private final long numRows;
+        private final long numFailedRows;
+        private final Duration busyTime;
+        private final AList<Throwable> errors;
+
+        public WorkerReport (int workerIndex, long numChunks, long numRows, long numFailedRows, Duration busyTime, AList<Throwable> errors) {
+            this.workerIndex = workerIndex;
+            this.numChunks = numChunks;
+            this.numRows = numRows;
+            this.numFailedRows = numFailedRows;
+            this.busyTime = busyTime;
+            this.errors = errors;
+        }
+
+        public int workerIndex () {
+            return workerIndex;
+        }
+
+        /**
+         * @return the number of successfully loaded chunks
+         */
+        public long numChunks () {
+            return numChunks;
+        }
+
+        /**
+         * @return the number of successfully loaded rows
+         */
+        public long numRows () {
+            return numRows;
+        }
+
+        public long numFailedRows () {
+            return numFailedRows;
+        }
+
+        /**
+         * @return the time spent writing and committing chunks, i.e. excluding time spent waiting for chunks
+         */
+        public Duration busyTime () {
+            return busyTime;
+        }
+
+        public AList<Throwable> errors () {
+            return errors;
+        }
+
+        /**
+         * @return the number of successfully loaded rows per second of busy time
+         */
+        public double rowsPerSecond () {
+            return perSecond(numRows, busyTime);
+        }
+
+        @Override public boolean equals (Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            WorkerReport that = (WorkerReport) o;
+            return workerIndex == that.workerIndex &&
+                    numChunks == that.numChunks &&
+                    numRows == that.numRows &&
+                    numFailedRows == that.numFailedRows &&
+                    Objects.equals(busyTime, that.busyTime) &&
+                    Objects.equals(errors, that.errors);
+        }
+
+        @Override public int hashCode () {
+            return Objects.hash(workerIndex, numChunks, numRows, numFailedRows, busyTime, errors);
+        }
+
+        @Override public String toString () {
+            return "WorkerReport{" +
+                    "workerIndex=" + workerIndex +
+                    ", numChunks=" + numChunks +
+                    ", numRows=" + numRows +
+                    ", numFailedRows=" + numFailedRows +
+                    ", busyTime=" + busyTime +
+                    ", errors=" + errors +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.ajjpj.asqlmapper.core;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+
+/**
+ * A BulkLoader writes a stream of rows or beans to the database with several worker threads in parallel, each on its
+ *  own connection. The calling thread reads the stream and groups its elements into chunks, and workers write each
+ *  chunk with a chunk writer (typically a JDBC batch) and commit it separately. It is created by
+ *  {@link SqlEngine#bulkLoader(String, Supplier)} for rows, or by
+ *  {@link com.ajjpj.asqlmapper.mapper.SqlMapper#bulkLoader(Supplier)} for beans.<p>
+ *
+ * Chunks are handed to workers through bounded queues, so reading the stream blocks while all workers are busy, and
+ *  memory consumption is limited to a few chunks per worker regardless of the stream's size.<p>
+ *
+ * By default, any worker takes the next chunk. With a partition key, elements are distributed to workers based on the
+ *  key's hash, so different workers never write rows with the same key. With a chunk order, e.g. by primary key,
+ *  every chunk is sorted before it is written, so concurrent chunks acquire row and index locks in the same order.
+ *  Both reduce lock conflicts and deadlocks between workers.<p>
+ *
+ * A failed chunk is rolled back and reported in the {@link BulkLoadResult}, and the worker continues with the next
+ *  chunk. The connection supplier must return a new connection for every call, and the bulk loader closes the
+ *  connections when the load is finished.<p>
+ *
+ * Instances are immutable, and configuration methods return modified copies.
+ */
+public class BulkLoader<T> {
+    private static final Logger log = LoggerFactory.getLogger(BulkLoader.class);
+
+    /**
+     * marks the end of input for a worker; compared by identity
+     */
+    private final List<T> endOfInput = new ArrayList<>();
+
+    private final Supplier<Connection> connectionSupplier;
+    private final BiConsumer<Connection, List<T>> chunkWriter;
+    private final int numWorkers;
+    private final int chunkSize;
+    private final int queuedChunksPerWorker;
+    private final AOption<Function<? super T, ?>> partitionKey;
+    private final AOption<Comparator<? super T>> chunkOrder;
+
+    public BulkLoader (Supplier<Connection> connectionSupplier, BiConsumer<Connection, List<T>> chunkWriter) {
+        this(connectionSupplier, chunkWriter, Runtime.getRuntime().availableProcessors(), 1000, 2, AOption.empty(), AOption.empty());
+    }
+
+    private BulkLoader (Supplier<Connection> connectionSupplier, BiConsumer<Connection, List<T>> chunkWriter, int numWorkers, int chunkSize,
+                        int queuedChunksPerWorker, AOption<Function<? super T, ?>> partitionKey, AOption<Comparator<? super T>> chunkOrder) {
+        this.connectionSupplier = connectionSupplier;
+        this.chunkWriter = chunkWriter;
+        this.numWorkers = numWorkers;
+        this.chunkSize = chunkSize;
+        this.queuedChunksPerWorker = queuedChunksPerWorker;
+        this.partitionKey = partitionKey;
+        this.chunkOrder = chunkOrder;
+    }
+
+    /**
+     * @param numWorkers the number of worker threads and connections (default: the number of available processors)
+     */
+    public BulkLoader<T> withNumWorkers (int numWorkers) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("number of workers must be positive");
+        }
+        return new BulkLoader<>(connectionSupplier, chunkWriter, numWorkers, chunkSize, queuedChunksPerWorker, partitionKey, chunkOrder);
+    }
+
+    /**
+     * @param chunkSize the number of elements per chunk, i.e. per batch and transaction (default 1000)
+     */
+    public BulkLoader<T> withChunkSize (int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        return new BulkLoader<>(connectionSupplier, chunkWriter, numWorkers, chunkSize, queuedChunksPerWorker, partitionKey, chunkOrder);
+    }
+
+    /**
+     * @param queuedChunksPerWorker the number of chunks that can be waiting per worker before reading the input
+     *                              blocks (default 2)
+     */
+    public BulkLoader<T> withQueuedChunksPerWorker (int queuedChunksPerWorker) {
+        if (queuedChunksPerWorker < 1) {
+            throw new IllegalArgumentException("number of queued chunks must be positive");
+        }
+        return new BulkLoader<>(connectionSupplier, chunkWriter, numWorkers, chunkSize, queuedChunksPerWorker, partitionKey, chunkOrder);
+    }
+
+    /**
+     * Distributes elements to workers by this key's hash, so elements with equal keys are written by the same worker.
+     */
+    public BulkLoader<T> withPartitionKey (Function<? super T, ?> partitionKey) {
+        return new BulkLoader<>(connectionSupplier, chunkWriter, numWorkers, chunkSize, queuedChunksPerWorker, AOption.some(partitionKey), chunkOrder);
+    }
+
+    /**
+     * Sorts every chunk before it is written, typically by primary key.
+     */
+    public BulkLoader<T> withChunkOrder (Comparator<? super T> chunkOrder) {
+        return new BulkLoader<>(connectionSupplier, chunkWriter, numWorkers, chunkSize, queuedChunksPerWorker, partitionKey, AOption.some(chunkOrder));
+    }
+
+    public BulkLoadResult load (Stream<T> elements) {
+        try {
+            return load(elements.iterator());
+        }
+        finally {
+            elements.close();
+        }
+    }
+
+    /**
+     * Reads all elements on the calling thread and returns when all workers are finished. If reading the elements
+     *  fails, the workers still write all chunks that were passed to them before the exception is propagated.
+     */
+    public BulkLoadResult load (Iterator<T> elements) {
+        final long start = System.nanoTime();
+
+        // a single shared queue balances load between workers if there is no partitioning
+        final int numQueues = partitionKey.isPresent() ? numWorkers : 1;
+        final List<BlockingQueue<List<T>>> queues = new ArrayList<>(numQueues);
+        final List<List<T>> buffers = new ArrayList<>(numQueues);
+        for (int i = 0; i < numQueues; i++) {
+            queues.add(new ArrayBlockingQueue<>(queuedChunksPerWorker * numWorkers / numQueues + 1));
+            buffers.add(new ArrayList<>(chunkSize));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numWorkers, r -> {
+            final Thread result = new Thread(r, "bulk-loader");
+            result.setDaemon(true);
+            return result;
+        });
+        try {
+            final List<Future<BulkLoadResult.WorkerReport>> workers = new ArrayList<>(numWorkers);
+            for (int i = 0; i < numWorkers; i++) {
+                final int workerIndex = i;
+                workers.add(executor.submit(() -> work(workerIndex, queues.get(workerIndex % numQueues))));
+            }
+
+            try {
+                while (elements.hasNext()) {
+                    final T element = elements.next();
+                    final int queueIndex = partitionKey.isPresent() ? Math.floorMod(partitionKey.get().apply(element).hashCode(), numQueues) : 0;
+
+                    final List<T> buffer = buffers.get(queueIndex);
+                    buffer.add(element);
+                    if (buffer.size() == chunkSize) {
+                        enqueue(queues.get(queueIndex), buffer);
+                        buffers.set(queueIndex, new ArrayList<>(chunkSize));
+                    }
+                }
+            }
+            finally {
+                for (int i = 0; i < numQueues; i++) {
+                    if (!buffers.get(i).isEmpty()) {
+                        enqueue(queues.get(i), buffers.get(i));
+                    }
+                }
+                for (int i = 0; i < numWorkers; i++) {
+                    enqueue(queues.get(i % numQueues), endOfInput);
+                }
+            }
+
+            final AVector.Builder<BulkLoadResult.WorkerReport> reports = AVector.builder();
+            for (Future<BulkLoadResult.WorkerReport> worker : workers) {
+                reports.add(reportOf(worker));
+            }
+            return new BulkLoadResult(reports.build(), Duration.ofNanos(System.nanoTime() - start));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static BulkLoadResult.WorkerReport reportOf (Future<BulkLoadResult.WorkerReport> worker) {
+        try {
+            return worker.get();
+        }
+        catch (ExecutionException exc) {
+            AUnchecker.throwUnchecked(exc.getCause());
+        }
+        catch (InterruptedException exc) {
+            AUnchecker.throwUnchecked(exc);
+        }
+        return null; // for the compiler
+    }
+
+    private void enqueue (BlockingQueue<List<T>> queue, List<T> chunk) {
+        if (chunk != endOfInput && chunkOrder.isPresent()) {
+            chunk.sort(chunkOrder.get());
+        }
+        executeUnchecked(() -> queue.put(chunk));
+    }
+
+    private BulkLoadResult.WorkerReport work (int workerIndex, BlockingQueue<List<T>> queue) throws InterruptedException {
+        final List<Throwable> errors = new ArrayList<>();
+        long numChunks = 0;
+        long numRows = 0;
+        long numFailedRows = 0;
+        long busyNanos = 0;
+
+        Connection conn = null;
+        try {
+            conn = connectionSupplier.get();
+        }
+        catch (Exception exc) {
+            log.warn("bulk loader worker #" + workerIndex + " could not obtain a connection", exc);
+            errors.add(exc);
+        }
+
+        try {
+            while (true) {
+                final List<T> chunk = queue.take();
+                if (chunk == endOfInput) {
+                    break;
+                }
+                if (conn == null) {
+                    // keep draining the queue so the producer is not blocked
+                    numFailedRows += chunk.size();
+                    continue;
+                }
+
+                final long chunkStart = System.nanoTime();
+                try {
+                    chunkWriter.accept(conn, chunk);
+                    if (!conn.getAutoCommit()) {
+                        conn.commit();
+                    }
+                    numChunks += 1;
+                    numRows += chunk.size();
+                }
+                catch (Exception exc) {
+                    log.warn("bulk loader worker #" + workerIndex + " failed to write a chunk of " + chunk.size() + " rows", exc);
+                    errors.add(exc);
+                    numFailedRows += chunk.size();
+                    rollbackQuietly(conn);
+                }
+                busyNanos += System.nanoTime() - chunkStart;
+            }
+        }
+        finally {
+            SqlHelper.closeQuietly(conn);
+        }
+
+        return new BulkLoadResult.WorkerReport(workerIndex, numChunks, numRows, numFailedRows, Duration.ofNanos(busyNanos),
+                AVector.from(errors));
+    }
+
+    private static void rollbackQuietly (Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+            }
+        }
+        catch (Exception exc) {
+            log.warn("rollback failed", exc);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class PrimitiveTypeRegistry {
         );
 
         final CanHandleRegistry<PrimitiveTypeHandler> handlers = CanHandleRegistry
-                .create(STRING_HANDLER, BOOLEAN_HANDLER, NUMERIC_HANDLER, ENUM_AS_STRING_HANDLER, LOCAL_DATE_HANDLER, LOCAL_TIME_HANDLER, INSTANT_HANDLER);
+                .create(STRING_HANDLER, BOOLEAN_HANDLER, NUMERIC_HANDLER, ENUM_AS_STRING_HANDLER, LOCAL_DATE_HANDLER, LOCAL_TIME_HANDLER, INSTANT_HANDLER, UUID_HANDLER);
         return new PrimitiveTypeRegistry(handlers, raw);
     }
 
@@ -131,6 +131,23 @@ public class SqlEngine {
         return new ABatchUpdate(items, primTypes, listeners, defaultConnectionSupplier).executeLarge(conn);
     }
 
+    /**
+     * @return a batch update whose parameters are added column by column, see {@link AColumnarBatchUpdate}
+     */
+    public AColumnarBatchUpdate columnarBatchUpdate(String sql) {
+        return new AColumnarBatchUpdate(sql, primTypes, listeners, defaultConnectionSupplier);
+    }
+
+    //--------------------------- bulk loading
+
+    /**
+     * @return a bulk loader that writes rows, i.e. lists of parameters for {@code sql}, in parallel JDBC batches on
+     *          connections from {@code connectionSupplier}, see {@link BulkLoader}
+     */
+    public BulkLoader<List<?>> bulkLoader(String sql, Supplier<Connection> connectionSupplier) {
+        return new BulkLoader<>(connectionSupplier, (conn, chunk) -> executeBatch(conn, sql, chunk));
+    }
+
     //--------------------------- insert statements, i.e. statements returning a generated primary key
 
     private String defaultPkName() {
@@ -193,6 +210,17 @@ public class SqlEngine {
         return new AInsertImpl<>(pkType, sql, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier);
     }
 
+    /**
+     * Executes INSERT statements with identical SQL as a single JDBC batch, returning the generated column(s) for every
+     *  batch item in order. This requires a JDBC driver that returns generated keys for batches.
+     */
+    public <T> AInsert<T> batchInsertSingleColPkInCol(String colName, Class<T> pkType, List<SqlSnippet> items) {
+        return batchInsert(pkType, new ScalarRowExtractor(pkType), items, AVector.of(colName));
+    }
+    public <T> AInsert<T> batchInsert(Class<T> pkType, RowExtractor rowExtractor, List<SqlSnippet> items, AVector<String> colNames) {
+        return new ABatchInsertImpl<>(pkType, items, primTypes, rowExtractor, colNames, listeners, defaultConnectionSupplier);
+    }
+
     // -------------------------- select statements
 
     public <T> AQuery<T> scalarQuery(Class<T> columnType, SqlSnippet sql, SqlSnippet... moreSql) {
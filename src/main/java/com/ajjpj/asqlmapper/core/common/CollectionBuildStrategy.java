@@ -1,5 +1,6 @@
 package com.ajjpj.asqlmapper.core.common;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map;
@@ -63,6 +64,18 @@ public interface CollectionBuildStrategy<T,B,C> {
         return (AHashSetStrategy<T>) AHashSetStrategy.INSTANCE;
     }
 
+    static LongArrayStrategy forLongArray() {
+        return LongArrayStrategy.INSTANCE;
+    }
+
+    static IntArrayStrategy forIntArray() {
+        return IntArrayStrategy.INSTANCE;
+    }
+
+    static StringArrayStrategy forStringArray() {
+        return StringArrayStrategy.INSTANCE;
+    }
+
 
     class JavaHashSetStrategy<T> implements CollectionBuildStrategy<T,HashSet<T>,HashSet<T>> {
         private static final JavaHashSetStrategy<Object> INSTANCE = new JavaHashSetStrategy<>();
@@ -184,6 +197,138 @@ public interface CollectionBuildStrategy<T,B,C> {
         }
     }
 
+    /**
+     * A growing array that is trimmed to size when finalized, used as the builder by {@link ArrayStrategy}. It
+     *  works for arrays of any component type, so primitive arrays are filled without boxing.
+     */
+    class ArrayBuffer<A> {
+        private A values;
+        private int capacity;
+        private int size = 0;
+
+        ArrayBuffer(A initial) {
+            this.values = initial;
+            this.capacity = Array.getLength(initial);
+        }
+
+        /**
+         * @return the index for the next element, after growing the buffer if it is full
+         */
+        private int nextIndex() {
+            if (size == capacity) {
+                capacity = 2*capacity;
+                values = copyOf(values, capacity);
+            }
+            return size++;
+        }
+
+        private A toArray() {
+            return copyOf(values, size);
+        }
+
+        private static <A> A copyOf(A array, int length) {
+            //noinspection unchecked
+            final A result = (A) Array.newInstance(array.getClass().getComponentType(), length);
+            System.arraycopy(array, 0, result, 0, Math.min(length, Array.getLength(array)));
+            return result;
+        }
+    }
+
+    /**
+     * Common code for strategies building arrays from an {@link ArrayBuffer}, so no boxed elements or spare capacity
+     *  are retained.
+     */
+    abstract class ArrayStrategy<T, A> implements ColumnValueBuildStrategy<T, ArrayBuffer<A>, A> {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final A empty;
+
+        ArrayStrategy(A empty) {
+            this.empty = empty;
+        }
+
+        @Override public ArrayBuffer<A> createBuilder () {
+            return new ArrayBuffer<>(ArrayBuffer.copyOf(empty, INITIAL_CAPACITY));
+        }
+
+        @Override public boolean requiresFinalization () {
+            return true;
+        }
+
+        @Override public A finalizeBuilder (ArrayBuffer<A> builder) {
+            return builder.toArray();
+        }
+
+        @Override public A empty() {
+            return empty;
+        }
+    }
+
+    class LongArrayStrategy extends ArrayStrategy<Long, long[]> {
+        private static final LongArrayStrategy INSTANCE = new LongArrayStrategy();
+
+        private LongArrayStrategy() {
+            super(new long[0]);
+        }
+
+        @Override public void addElement (ArrayBuffer<long[]> builder, Long el) {
+            if (el == null) {
+                throw new IllegalArgumentException("null element in a long[] - use a collection type that allows null, e.g. List<Long>");
+            }
+            add(builder, el);
+        }
+
+        @Override public void addColumnValue (ArrayBuffer<long[]> builder, SqlRow row, String columnName) {
+            add(builder, row.getPrimitiveLong(columnName));
+        }
+
+        private static void add(ArrayBuffer<long[]> builder, long value) {
+            final int idx = builder.nextIndex();
+            builder.values[idx] = value;
+        }
+    }
+
+    class IntArrayStrategy extends ArrayStrategy<Integer, int[]> {
+        private static final IntArrayStrategy INSTANCE = new IntArrayStrategy();
+
+        private IntArrayStrategy() {
+            super(new int[0]);
+        }
+
+        @Override public void addElement (ArrayBuffer<int[]> builder, Integer el) {
+            if (el == null) {
+                throw new IllegalArgumentException("null element in an int[] - use a collection type that allows null, e.g. List<Integer>");
+            }
+            add(builder, el);
+        }
+
+        @Override public void addColumnValue (ArrayBuffer<int[]> builder, SqlRow row, String columnName) {
+            add(builder, row.getPrimitiveInt(columnName));
+        }
+
+        private static void add(ArrayBuffer<int[]> builder, int value) {
+            final int idx = builder.nextIndex();
+            builder.values[idx] = value;
+        }
+    }
+
+    class StringArrayStrategy extends ArrayStrategy<String, String[]> {
+        private static final StringArrayStrategy INSTANCE = new StringArrayStrategy();
+
+        private StringArrayStrategy() {
+            super(new String[0]);
+        }
+
+        @Override public void addElement (ArrayBuffer<String[]> builder, String el) {
+            final int idx = builder.nextIndex();
+            builder.values[idx] = el;
+        }
+
+        @Override public void addColumnValue (ArrayBuffer<String[]> builder, SqlRow row, String columnName) {
+            addElement(builder, row.getString(columnName));
+        }
+    }
+
     class Registry {
         private static final Map<Class<?>, CollectionBuildStrategy> registry = new ConcurrentHashMap<>();
         static {
@@ -201,6 +346,10 @@ public interface CollectionBuildStrategy<T,B,C> {
 
             registry.put(ASet.class, forAHashSet());
             registry.put(AHashSet.class, forAHashSet());
+
+            registry.put(long[].class, forLongArray());
+            registry.put(int[].class, forIntArray());
+            registry.put(String[].class, forStringArray());
         }
     }
 }
@@ -0,0 +1,9 @@
+package com.ajjpj.asqlmapper.core.common;
+
+/**
+ * A {@link CollectionBuildStrategy} that can add an element directly from a column of a {@link SqlRow}, bypassing
+ *  row extraction. Implementations for primitive arrays read the column without boxing.
+ */
+public interface ColumnValueBuildStrategy<T,B,C> extends CollectionBuildStrategy<T,B,C> {
+    void addColumnValue(B builder, SqlRow row, String columnName);
+}
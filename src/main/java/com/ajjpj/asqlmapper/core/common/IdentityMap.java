@@ -0,0 +1,88 @@
+package com.ajjpj.asqlmapper.core.common;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ajjpj.acollections.util.AOption;
+
+/**
+ * An IdentityMap ensures that every distinct entity (i.e. bean class and primary key) is extracted only once while
+ *  it is in use, and that all rows referring to the same entity share a single instance. This reduces heap usage
+ *  when the same referenced row (e.g. a country or a tag) occurs many times in a result, especially across to-one
+ *  and many-to-many relations.<p>
+ *
+ * Sharing instances is only safe for immutable beans, so identity maps are strictly opt-in, see
+ *  {@link com.ajjpj.asqlmapper.core.AQuery#withIdentityMap(IdentityMap)}. An IdentityMap is intended to be used for
+ *  a single query (including the queries for its injected properties) and is <em>not</em> thread safe. Its hit and
+ *  miss counts can be used to judge whether it pays off for a given query.
+ */
+public class IdentityMap {
+    private final KeyColumnResolver keyColumnResolver;
+
+    private final Map<Class<?>, AOption<String>> keyColumns = new HashMap<>();
+    private final Map<Class<?>, Map<Object,Object>> instances = new HashMap<>();
+
+    private long numHits = 0;
+    private long numMisses = 0;
+
+    public IdentityMap (KeyColumnResolver keyColumnResolver) {
+        this.keyColumnResolver = keyColumnResolver;
+    }
+
+    /**
+     * @return the name of the column identifying instances of a given class, or none() if instances of the class
+     *          should not be shared
+     */
+    public AOption<String> keyColumn (Connection conn, Class<?> beanType) {
+        return keyColumns.computeIfAbsent(beanType, bt -> keyColumnResolver.keyColumn(conn, bt));
+    }
+
+    /**
+     * @return the instance registered for a given key, or null if there is none
+     */
+    public <T> T get (Class<T> beanType, Object key) {
+        final Map<Object,Object> byKey = instances.get(beanType);
+        final Object result = byKey != null ? byKey.get(key) : null;
+        if (result != null) {
+            numHits += 1;
+        }
+        else {
+            numMisses += 1;
+        }
+        //noinspection unchecked
+        return (T) result;
+    }
+
+    public void put (Class<?> beanType, Object key, Object instance) {
+        instances.computeIfAbsent(beanType, bt -> new HashMap<>()).put(key, instance);
+    }
+
+    public long numHits () {
+        return numHits;
+    }
+
+    public long numMisses () {
+        return numMisses;
+    }
+
+    public int size () {
+        int result = 0;
+        for (Map<Object,Object> m: instances.values()) {
+            result += m.size();
+        }
+        return result;
+    }
+
+    @Override public String toString () {
+        return "IdentityMap{" +
+                "size=" + size() +
+                ", numHits=" + numHits +
+                ", numMisses=" + numMisses +
+                '}';
+    }
+
+    public interface KeyColumnResolver {
+        AOption<String> keyColumn (Connection conn, Class<?> beanType);
+    }
+}
@@ -58,6 +58,26 @@ public class LiveSqlRow implements SqlRow {
         return executeUnchecked(() -> primTypes.fromSql(rs.getObject(idx)));
     }
 
+    @Override public long getPrimitiveLong (String columnName) {
+        return executeUnchecked(() -> {
+            final long result = rs.getLong(columnName);
+            if (rs.wasNull()) {
+                throw new IllegalArgumentException("column " + columnName + " is NULL, which has no primitive representation");
+            }
+            return result;
+        });
+    }
+
+    @Override public int getPrimitiveInt (String columnName) {
+        return executeUnchecked(() -> {
+            final int result = rs.getInt(columnName);
+            if (rs.wasNull()) {
+                throw new IllegalArgumentException("column " + columnName + " is NULL, which has no primitive representation");
+            }
+            return result;
+        });
+    }
+
     static class LiveColumnNames extends AbstractList<String> {
         private final ResultSetMetaData rsMeta;
 
@@ -43,4 +43,30 @@ public interface SqlRow {
     default Long getLong(int idx) {
         return get(Long.class, idx);
     }
+
+    /**
+     * Reads a column as a primitive value without boxing if the implementation supports it.
+     *
+     * @throws IllegalArgumentException if the column is SQL NULL, which has no primitive representation
+     */
+    default long getPrimitiveLong(String columnName) {
+        final Long result = getLong(columnName);
+        if (result == null) {
+            throw new IllegalArgumentException("column " + columnName + " is NULL, which has no primitive representation");
+        }
+        return result;
+    }
+
+    /**
+     * Reads a column as a primitive value without boxing if the implementation supports it.
+     *
+     * @throws IllegalArgumentException if the column is SQL NULL, which has no primitive representation
+     */
+    default int getPrimitiveInt(String columnName) {
+        final Integer result = getInt(columnName);
+        if (result == null) {
+            throw new IllegalArgumentException("column " + columnName + " is NULL, which has no primitive representation");
+        }
+        return result;
+    }
 }
@@ -0,0 +1,87 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.mutable.AMutableListWrapper;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * Executes a number of INSERT statements with identical SQL as a single JDBC batch, retrieving their generated
+ *  columns. The generated values are returned in the order of the batch items.<p>
+ *
+ * Not all JDBC drivers return generated keys for batches - see
+ *  {@link com.ajjpj.asqlmapper.mapper.DatabaseDialect#supportsBatchGeneratedKeys()}. If the number of returned
+ *  rows does not match the number of batch items, an IllegalStateException is thrown.
+ */
+public class ABatchInsertImpl<T> extends AbstractInsertImpl<T> {
+    private final String sql;
+    private final List<List<?>> params;
+
+    public ABatchInsertImpl (Class<T> pkCls, List<SqlSnippet> items, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                             AVector<String> columnNames, AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+        super(pkCls, primTypes, rowExtractor, columnNames, listeners, defaultConnectionSupplier);
+        this.sql = sql(items);
+        this.params = AMutableListWrapper.wrap(items).map(SqlSnippet::getParams);
+    }
+
+    private static String sql(List<SqlSnippet> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("no batch items");
+        }
+
+        for (int i = 1; i < items.size(); i++) {
+            if (!items.get(0).getSql().equals(items.get(i).getSql())) {
+                throw new IllegalArgumentException(
+                        "all batch items must have the same SQL - item " + i + " differed from item 0 (" + items.get(0).getSql() + " / " +
+                                items.get(i).getSql());
+            }
+        }
+        return items.get(0).getSql();
+    }
+
+    @Override public T executeSingle (Connection conn) {
+        final AList<T> result = executeMulti(conn);
+        if (result.size() != 1) throw new IllegalStateException("expected a single generated row, got " + result.size());
+        return result.get(0);
+    }
+
+    @Override public AList<T> executeMulti (Connection conn) {
+        listeners.forEach(l -> l.onBeforeBatchUpdate(sql, params.size()));
+        try {
+            final PreparedStatement ps = prepareStatement(conn, sql);
+            try {
+                for (List<?> batchItem : params) {
+                    SqlHelper.bindParameters(ps, batchItem, primTypes);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                final AList<T> result = generatedKeys(ps);
+                if (result.size() != params.size()) {
+                    throw new IllegalStateException("batch of " + params.size() + " inserts returned " + result.size() + " generated rows - the JDBC driver may not support generated keys for batches");
+                }
+
+                listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterBatchUpdate);
+                return result;
+            }
+            finally {
+                SqlHelper.closeQuietly(ps);
+            }
+        }
+        catch(Throwable th) {
+            listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+            AUnchecker.throwUnchecked(th);
+            return null; // for the compiler
+        }
+    }
+}
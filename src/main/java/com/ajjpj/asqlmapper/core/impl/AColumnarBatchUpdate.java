@@ -0,0 +1,157 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * A batch update whose parameters are provided as columns, i.e. one array per bind parameter with one element per
+ *  batch item. Primitive columns are bound with {@code setLong} / {@code setInt} / {@code setDouble}, so no objects
+ *  are created per batch item. The batch is executed in chunks of a configurable size.<p>
+ *
+ * Columns are added in the order of the statement's bind parameters, and all columns must have the same length.
+ */
+public class AColumnarBatchUpdate {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final String sql;
+    private final AVector<Column> columns;
+    private final int chunkSize;
+    private final PrimitiveTypeRegistry primTypes;
+    private final AVector<SqlEngineEventListener> listeners;
+    private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+
+    public AColumnarBatchUpdate (String sql, PrimitiveTypeRegistry primTypes, AVector<SqlEngineEventListener> listeners,
+                                 AOption<Supplier<Connection>> defaultConnectionSupplier) {
+        this(sql, AVector.empty(), DEFAULT_CHUNK_SIZE, primTypes, listeners, defaultConnectionSupplier);
+    }
+
+    private AColumnarBatchUpdate (String sql, AVector<Column> columns, int chunkSize, PrimitiveTypeRegistry primTypes,
+                                  AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+        this.sql = sql;
+        this.columns = columns;
+        this.chunkSize = chunkSize;
+        this.primTypes = primTypes;
+        this.listeners = listeners;
+        this.defaultConnectionSupplier = defaultConnectionSupplier;
+    }
+
+    private AColumnarBatchUpdate withColumn (Column column) {
+        if (columns.nonEmpty() && columns.head().size() != column.size()) {
+            throw new IllegalArgumentException("all columns must have the same length - expected " + columns.head().size() + ", got " + column.size());
+        }
+        return new AColumnarBatchUpdate(sql, columns.append(column), chunkSize, primTypes, listeners, defaultConnectionSupplier);
+    }
+
+    public AColumnarBatchUpdate withLongColumn (long[] values) {
+        return withColumn(new Column() {
+            @Override public int size () {
+                return values.length;
+            }
+            @Override public void bind (PreparedStatement ps, int idx, int row) throws SQLException {
+                ps.setLong(idx, values[row]);
+            }
+        });
+    }
+    public AColumnarBatchUpdate withIntColumn (int[] values) {
+        return withColumn(new Column() {
+            @Override public int size () {
+                return values.length;
+            }
+            @Override public void bind (PreparedStatement ps, int idx, int row) throws SQLException {
+                ps.setInt(idx, values[row]);
+            }
+        });
+    }
+    public AColumnarBatchUpdate withDoubleColumn (double[] values) {
+        return withColumn(new Column() {
+            @Override public int size () {
+                return values.length;
+            }
+            @Override public void bind (PreparedStatement ps, int idx, int row) throws SQLException {
+                ps.setDouble(idx, values[row]);
+            }
+        });
+    }
+    /**
+     * adds a column of arbitrary values, which are converted by the {@link PrimitiveTypeRegistry}
+     */
+    public AColumnarBatchUpdate withColumn (Object[] values) {
+        return withColumn(new Column() {
+            @Override public int size () {
+                return values.length;
+            }
+            @Override public void bind (PreparedStatement ps, int idx, int row) throws SQLException {
+                ps.setObject(idx, primTypes.toSql(values[row]));
+            }
+        });
+    }
+
+    public AColumnarBatchUpdate withChunkSize (int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        return new AColumnarBatchUpdate(sql, columns, chunkSize, primTypes, listeners, defaultConnectionSupplier);
+    }
+
+    public int[] execute() {
+        return execute(defaultConnectionSupplier
+                .orElseThrow(() -> new IllegalStateException("no default connection supplier was configured"))
+                .get());
+    }
+
+    /**
+     * @return the update counts of all batch items
+     */
+    public int[] execute(Connection conn) {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("no columns");
+        }
+        final int numRows = columns.head().size();
+        final Column[] columnArr = columns.toArray(new Column[0]);
+
+        listeners.forEach(l -> l.onBeforeBatchUpdate(sql, numRows));
+        try {
+            final PreparedStatement ps = conn.prepareStatement(sql);
+            try {
+                final int[] result = new int[numRows];
+                int chunkStart = 0;
+                for (int row = 0; row < numRows; row++) {
+                    for (int col = 0; col < columnArr.length; col++) {
+                        columnArr[col].bind(ps, col+1, row);
+                    }
+                    ps.addBatch();
+
+                    if (row+1 - chunkStart == chunkSize || row == numRows-1) {
+                        final int[] chunkResult = ps.executeBatch();
+                        System.arraycopy(chunkResult, 0, result, chunkStart, chunkResult.length);
+                        chunkStart = row+1;
+                    }
+                }
+
+                listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterBatchUpdate);
+                return result;
+            }
+            finally {
+                SqlHelper.closeQuietly(ps);
+            }
+        }
+        catch (Throwable th) {
+            listeners.reverseIterator().forEachRemaining(l -> l.onFailed(th));
+            AUnchecker.throwUnchecked(th);
+            return null;  // for the compiler
+        }
+    }
+
+    private interface Column {
+        int size();
+        void bind(PreparedStatement ps, int idx, int row) throws SQLException;
+    }
+}
@@ -23,6 +23,7 @@ import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.LiveSqlRow;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
@@ -36,10 +37,18 @@ public class AQueryImpl<T> implements AQuery<T> {
     private final AVector<SqlEngineEventListener> listeners;
     private final AOption<Supplier<Connection>> defaultConnectionSupplier;
     private final AVector<InjectedProperty> injectedProperties;
+    private final String[] injectedPropertyNames;
+    private final AOption<IdentityMap> identityMap;
 
     public AQueryImpl(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
                       AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
                       AVector<InjectedProperty> injectedProperties) {
+        this(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, AOption.none());
+    }
+
+    public AQueryImpl(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
+                      AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
+                      AVector<InjectedProperty> injectedProperties, AOption<IdentityMap> identityMap) {
         this.rowClass = cls;
         this.sql = sql;
         this.primTypes = primTypes;
@@ -47,12 +56,14 @@ public class AQueryImpl<T> implements AQuery<T> {
         this.listeners = listeners;
         this.defaultConnectionSupplier = defaultConnectionSupplier;
         this.injectedProperties = injectedProperties;
+        this.injectedPropertyNames = injectedProperties.map(InjectedProperty::propertyName).toArray(new String[0]);
+        this.identityMap = identityMap;
     }
 
     protected AQueryImpl<T> build(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
                                   AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                                  AVector<InjectedProperty> injectedProperties) {
-        return new AQueryImpl<>(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties);
+                                  AVector<InjectedProperty> injectedProperties, AOption<IdentityMap> identityMap) {
+        return new AQueryImpl<>(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, identityMap);
     }
 
     @Override public AQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
@@ -60,7 +71,18 @@ public class AQueryImpl<T> implements AQuery<T> {
             throw new IllegalArgumentException("attempted to add a second injected property with name " + injectedProperty.propertyName());
         }
 
-        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties.append(injectedProperty));
+        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties.append(injectedProperty), identityMap);
+    }
+
+    @Override public AQuery<T> withIdentityMap(IdentityMap identityMap) {
+        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, AOption.some(identityMap));
+    }
+
+    protected RowExtractor rowExtractor() {
+        return rowExtractor;
+    }
+    protected AQueryImpl<T> withRowExtractor(RowExtractor rowExtractor) {
+        return build(rowClass, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, identityMap);
     }
 
     @Override public T single() {
@@ -79,7 +101,8 @@ public class AQueryImpl<T> implements AQuery<T> {
                 throw new NoSuchElementException("no result");
             }
             final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final T result = doExtract(conn, new LiveSqlRow(primTypes, rs), memento, false, injectedPropertyMementos(conn));
+            final LiveSqlRow row = new LiveSqlRow(primTypes, rs);
+            final T result = doExtract(conn, row, memento, false, injectedPropertyMementos(conn), identityColumn(conn, row));
             if (rs.next()) {
                 throw new IllegalStateException("more than one result row");
             }
@@ -88,16 +111,64 @@ public class AQueryImpl<T> implements AQuery<T> {
         }));
     }
 
-    private Map<String, Object> injectedPropertyMementos(Connection conn) {
-        if (injectedProperties.isEmpty()) {
-            return Collections.emptyMap();
+    /**
+     * @return the injected properties' mementos, in the order of {@link #injectedProperties}
+     */
+    private Object[] injectedPropertyMementos(Connection conn) {
+        final Object[] result = new Object[injectedProperties.size()];
+        for (int i=0; i<result.length; i++) {
+            final InjectedProperty<?> ip = injectedProperties.get(i);
+            if (identityMap.isDefined()) {
+                result[i] = ip.mementoPerQuery(conn, rowClass, sql, identityMap.get());
+            }
+            else {
+                result[i] = ip.mementoPerQuery(conn, rowClass, sql);
+            }
         }
+        return result;
+    }
 
-        final Map<String, Object> result = new HashMap<>();
-        for (InjectedProperty<?> ip : injectedProperties) {
-            result.put(ip.propertyName(), ip.mementoPerQuery(conn, rowClass, sql));
+    /**
+     * @return the identity of rows in the identity map, if there is an identity map and its key column is part of
+     *          this query's result
+     */
+    private AOption<IdentityKey> identityColumn(Connection conn, SqlRow row) {
+        if (identityMap.isEmpty()) {
+            return AOption.none();
         }
-        return result;
+        return identityMap.get().keyColumn(conn, rowClass)
+                .flatMap(col -> AOption.of(findColumn(row, col)))
+                .map(col -> new IdentityKey(col, Arrays.asList(new ArrayList<>(row.columnNames()), Arrays.asList(injectedPropertyNames))));
+    }
+
+    /**
+     * Instances are only shared between rows with the same columns and the same injected properties, so a bean that
+     *  was extracted with fewer columns or relations is not reused where more of them are requested. Injected
+     *  properties are compared by name, so the identity map does not distinguish between e.g. different conditions
+     *  for the same relation.
+     */
+    private static class IdentityKey {
+        final String column;
+        final List<Object> shape;
+
+        IdentityKey(String column, List<Object> shape) {
+            this.column = column;
+            this.shape = shape;
+        }
+
+        Object forRow(SqlRow row) {
+            final Object key = row.get(column);
+            return key != null ? Arrays.asList(shape, key) : null;
+        }
+    }
+
+    private static String findColumn(SqlRow row, String columnName) {
+        for (String c : row.columnNames()) {
+            if (c.equalsIgnoreCase(columnName)) {
+                return c;
+            }
+        }
+        return null;
     }
 
     private void afterIteration(int numRows) {
@@ -136,7 +207,8 @@ public class AQueryImpl<T> implements AQuery<T> {
                 return AOption.empty();
             }
             final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final T result = doExtract(conn, new LiveSqlRow(primTypes, rs), memento, false, injectedPropertyMementos(conn));
+            final LiveSqlRow row = new LiveSqlRow(primTypes, rs);
+            final T result = doExtract(conn, row, memento, false, injectedPropertyMementos(conn), identityColumn(conn, row));
             if (rs.next()) {
                 throw new IllegalStateException("more than one result row");
             }
@@ -154,10 +226,11 @@ public class AQueryImpl<T> implements AQuery<T> {
             int count = 0;
 
             final Object memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, false);
-            final Map<String, Object> injectedPropsMementos = injectedPropertyMementos(conn);
+            final Object[] injectedPropsMementos = injectedPropertyMementos(conn);
             final LiveSqlRow row = new LiveSqlRow(primTypes, rs);
+            final AOption<IdentityKey> identityColumn = identityColumn(conn, row);
             while (rs.next()) {
-                final T el = doExtract(conn, row, memento, false, injectedPropsMementos);
+                final T el = doExtract(conn, row, memento, false, injectedPropsMementos, identityColumn);
                 collector.accumulator().accept(acc, el);
                 count += 1;
             }
@@ -173,23 +246,38 @@ public class AQueryImpl<T> implements AQuery<T> {
         return collect(AVector.streamCollector());
     }
 
-    private Map<String, Object> injectedPropsValuesForRow(Connection conn, SqlRow currentRow, Map<String, Object> injectedPropsMementos) {
-        if (injectedProperties.isEmpty()) {
+    private Map<String, Object> injectedPropsValuesForRow(Connection conn, SqlRow currentRow, Object[] injectedPropsMementos) {
+        if (injectedPropertyNames.length == 0) {
             return Collections.emptyMap();
         }
 
-        final Map<String, Object> result = new HashMap<>();
-        for (InjectedProperty ip : injectedProperties) {
+        final InjectedPropertyValues result = new InjectedPropertyValues(injectedPropertyNames);
+        for (int i=0; i<injectedPropertyNames.length; i++) {
             //noinspection unchecked
-            final AOption<Object> optValue = ip.value(conn, currentRow, injectedPropsMementos.get(ip.propertyName()));
-            optValue.forEach(o -> result.put(ip.propertyName(), o));
+            final AOption<Object> optValue = injectedProperties.get(i).value(conn, currentRow, injectedPropsMementos[i]);
+            if (optValue.isDefined()) {
+                result.set(i, optValue.get());
+            }
         }
         return result;
     }
 
-    private T doExtract(Connection conn, LiveSqlRow row, Object memento, boolean isStreaming, Map<String, Object> injectedPropsMementos) throws SQLException {
+    private T doExtract(Connection conn, LiveSqlRow row, Object memento, boolean isStreaming, Object[] injectedPropsMementos,
+                        AOption<IdentityKey> identityColumn) throws SQLException {
+        final Object identityKey = identityColumn.isDefined() ? identityColumn.get().forRow(row) : null;
+        if (identityKey != null) {
+            final T shared = identityMap.get().get(rowClass, identityKey);
+            if (shared != null) {
+                return shared;
+            }
+        }
+
         final Map<String, Object> injectedPropsValues = injectedPropsValuesForRow(conn, row, injectedPropsMementos);
-        return rowExtractor.fromSql(rowClass, primTypes, row, memento, isStreaming, injectedPropsValues);
+        final T result = rowExtractor.fromSql(rowClass, primTypes, row, memento, isStreaming, injectedPropsValues);
+        if (identityKey != null) {
+            identityMap.get().put(rowClass, identityKey, result);
+        }
+        return result;
     }
 
     /**
@@ -240,7 +328,8 @@ public class AQueryImpl<T> implements AQuery<T> {
         private ResultSet rs;
         private LiveSqlRow row;
         private Object memento;
-        private Map<String, Object> injectedPropsMementos;
+        private Object[] injectedPropsMementos;
+        private AOption<IdentityKey> identityColumn;
         private int numRows = 0;
 
         private boolean started = false;
@@ -282,6 +371,7 @@ public class AQueryImpl<T> implements AQuery<T> {
                 listeners.reverseIterator().forEachRemaining(SqlEngineEventListener::onAfterQueryExecution);
                 memento = rowExtractor.mementoPerQuery(rowClass, primTypes, rs, true);
                 injectedPropsMementos = injectedPropertyMementos(conn);
+                identityColumn = identityColumn(conn, row);
             }
             catch (Throwable th) {
                 releaseResources();
@@ -300,7 +390,7 @@ public class AQueryImpl<T> implements AQuery<T> {
                     return false;
                 }
                 numRows += 1;
-                action.accept(doExtract(conn, row, memento, true, injectedPropsMementos));
+                action.accept(doExtract(conn, row, memento, true, injectedPropsMementos, identityColumn));
                 return true;
             }
             catch (Throwable th) {
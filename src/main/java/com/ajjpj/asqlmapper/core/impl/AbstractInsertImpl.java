@@ -0,0 +1,71 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AInsert;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.common.LiveSqlRow;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
+
+/**
+ * Common code for inserts returning generated columns: the configuration, default connection handling and the mapping
+ *  of generated keys.
+ */
+abstract class AbstractInsertImpl<T> implements AInsert<T> {
+    final Class<T> pkCls;
+    final PrimitiveTypeRegistry primTypes;
+    final RowExtractor rowExtractor;
+    final AVector<String> columnNames;
+    final AVector<SqlEngineEventListener> listeners;
+    private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+
+    AbstractInsertImpl (Class<T> pkCls, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor, AVector<String> columnNames,
+                        AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+        this.pkCls = pkCls;
+        this.primTypes = primTypes;
+        this.rowExtractor = rowExtractor;
+        this.columnNames = columnNames;
+        this.listeners = listeners;
+        this.defaultConnectionSupplier = defaultConnectionSupplier;
+    }
+
+    private Connection defaultConnection () {
+        return defaultConnectionSupplier
+                .orElseThrow(() -> new IllegalStateException("no default connection supplier was configured"))
+                .get();
+    }
+
+    @Override public T executeSingle () {
+        return executeSingle(defaultConnection());
+    }
+
+    @Override public AList<T> executeMulti () {
+        return executeMulti(defaultConnection());
+    }
+
+    PreparedStatement prepareStatement (Connection conn, String sql) throws SQLException {
+        return conn.prepareStatement(sql, columnNames.toArray(new String[0]));
+    }
+
+    /**
+     * @return the generated keys of an executed statement, in the order returned by the driver
+     */
+    AList<T> generatedKeys (PreparedStatement ps) throws SQLException {
+        final AVector.Builder<T> builder = AVector.builder();
+        final ResultSet rs = ps.getGeneratedKeys();
+        final Object memento = rowExtractor.mementoPerQuery(pkCls, primTypes, rs, false);
+        final SqlRow row = new LiveSqlRow(primTypes, rs);
+        while (rs.next()) builder.add(rowExtractor.fromSql(pkCls, primTypes, row, memento, false, Collections.emptyMap()));
+        return builder.build();
+    }
+}
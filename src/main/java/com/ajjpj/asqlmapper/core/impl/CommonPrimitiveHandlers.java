@@ -15,6 +15,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.AbstractMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
@@ -29,8 +30,7 @@ public class CommonPrimitiveHandlers {
     public static final PrimitiveTypeHandler LOCAL_DATE_HANDLER = new LocalDateHandler();
     public static final PrimitiveTypeHandler LOCAL_TIME_HANDLER = new LocalTimeHandler();
     public static final PrimitiveTypeHandler INSTANT_HANDLER = new InstantHandler();
-
-    //TODO UUID
+    public static final PrimitiveTypeHandler UUID_HANDLER = new PassThroughHandler(ASet.of(UUID.class));
 
     public static final ASet<Class<?>> NUMERIC_TYPES = ASet.of(
             Byte.class, byte.class, Short.class, short.class, Integer.class, int.class, Long.class, long.class,
@@ -0,0 +1,94 @@
+package com.ajjpj.asqlmapper.core.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The values of a query's injected properties for a single row. Property names are fixed per query, so values are
+ *  stored in an array with one slot per injected property instead of a hash map per row. Slots without a value do
+ *  not show up as map entries.<p>
+ *
+ * This map is read-only for row extractors; it is filled by {@link AQueryImpl} before it is handed out.
+ */
+class InjectedPropertyValues extends AbstractMap<String,Object> {
+    private static final Object ABSENT = new Object();
+
+    private final String[] names;
+    private final Object[] values;
+    private int size = 0;
+
+    InjectedPropertyValues (String[] names) {
+        this.names = names;
+        this.values = new Object[names.length];
+        for (int i=0; i<values.length; i++) {
+            values[i] = ABSENT;
+        }
+    }
+
+    void set (int slot, Object value) {
+        if (values[slot] == ABSENT) {
+            size += 1;
+        }
+        values[slot] = value;
+    }
+
+    private int slotOf (Object name) {
+        for (int i=0; i<names.length; i++) {
+            if (names[i].equals(name)) {
+                return values[i] == ABSENT ? -1 : i;
+            }
+        }
+        return -1;
+    }
+
+    @Override public int size () {
+        return size;
+    }
+
+    @Override public boolean containsKey (Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override public Object get (Object key) {
+        final int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    @Override public Set<Entry<String, Object>> entrySet () {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override public Iterator<Entry<String, Object>> iterator () {
+                return new Iterator<Entry<String, Object>>() {
+                    private int nextSlot = advance(0);
+
+                    private int advance (int from) {
+                        int result = from;
+                        while (result < values.length && values[result] == ABSENT) {
+                            result += 1;
+                        }
+                        return result;
+                    }
+
+                    @Override public boolean hasNext () {
+                        return nextSlot < values.length;
+                    }
+
+                    @Override public Entry<String, Object> next () {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String,Object> result = new SimpleImmutableEntry<>(names[nextSlot], values[nextSlot]);
+                        nextSlot = advance(nextSlot+1);
+                        return result;
+                    }
+                };
+            }
+
+            @Override public int size () {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * Injects a scalar value that is aggregated per master key (e.g. the number of detail rows or the sum of a detail
+ *  column) without materializing the detail rows. The detail query is expected to return one row per master key,
+ *  typically by grouping by the detail key column, and to extract the aggregated value from that row.<p>
+ *
+ * Master keys without a detail row get {@code valueIfAbsent}, e.g. zero for a count.
+ */
+public class InjectedAggregateProperty<T> implements InjectedProperty<Map<Object,T>> {
+    private final String propertyName;
+    private final String masterKeyName;
+    private final Class<?> keyType;
+    private final String detailKeyName;
+    private final AQuery<T> detailQuery;
+    private final AOption<T> valueIfAbsent;
+
+    public InjectedAggregateProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
+                                      AOption<T> valueIfAbsent) {
+        this.propertyName = propertyName;
+        this.masterKeyName = masterKeyName;
+        this.keyType = keyType;
+        this.detailKeyName = detailKeyName;
+        this.detailQuery = detailQuery;
+        this.valueIfAbsent = valueIfAbsent;
+    }
+
+    @Override public String propertyName () {
+        return propertyName;
+    }
+
+    @Override public Map<Object,T> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+        final Map<Object,T> result = new HashMap<>();
+
+        detailQuery.forEachWithRowAccess(conn, (el, row) -> {
+            final Object key = row.get(keyType, detailKeyName);
+            result.put(key, el);
+        });
+
+        return result;
+    }
+
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Map<Object,T> memento) {
+        final Object curMasterKey = currentRow.get(keyType, masterKeyName);
+        final T result = memento.get(curMasterKey);
+        //noinspection unchecked
+        return result != null ? AOption.some(result) : (AOption<Object>) valueIfAbsent;
+    }
+}
@@ -4,6 +4,7 @@ import java.sql.Connection;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 
 
@@ -31,5 +32,13 @@ import com.ajjpj.asqlmapper.core.common.SqlRow;
 public interface InjectedProperty<M> {
     String propertyName();
     M mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery);
+
+    /**
+     * This variant is called instead of {@link #mementoPerQuery(Connection, Class, SqlSnippet)} if the owning query
+     *  has an {@link IdentityMap}. Implementations that run queries of their own can pass it on to share instances.
+     */
+    default M mementoPerQuery(Connection conn, Class<?> owningClass, SqlSnippet owningQuery, IdentityMap identityMap) {
+        return mementoPerQuery(conn, owningClass, owningQuery);
+    }
     AOption<Object> value(Connection conn, SqlRow currentRow, M memento);
 }
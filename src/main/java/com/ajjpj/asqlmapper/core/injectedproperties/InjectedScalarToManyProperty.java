@@ -0,0 +1,74 @@
+package com.ajjpj.asqlmapper.core.injectedproperties;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.ColumnValueBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+
+/**
+ * Injects the values of a single detail column per master key, e.g. tag ids into a {@code long[]} property. Unlike
+ *  {@link InjectedToManyProperty}, values are read directly from the detail rows into the collection builders, so
+ *  there is no row extraction per detail row, and primitive arrays are filled without boxing.<p>
+ *
+ * The detail query is expected to be a raw query (see {@link com.ajjpj.asqlmapper.core.SqlEngine#rawQuery(SqlSnippet, SqlSnippet...)})
+ *  returning the detail key column and the value column.
+ */
+public class InjectedScalarToManyProperty<B,C> implements InjectedProperty<Map<Object,C>> {
+    private final String propertyName;
+    private final String masterKeyName;
+    private final Class<?> keyType;
+    private final String detailKeyName;
+    private final String valueColumnName;
+    private final AQuery<SqlRow> detailQuery;
+
+    private final ColumnValueBuildStrategy<?,B,C> collectionBuildStrategy;
+
+    public InjectedScalarToManyProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, String valueColumnName,
+                                         AQuery<SqlRow> detailQuery, ColumnValueBuildStrategy<?,B,C> collectionBuildStrategy) {
+        this.propertyName = propertyName;
+        this.masterKeyName = masterKeyName;
+        this.keyType = keyType;
+        this.detailKeyName = detailKeyName;
+        this.valueColumnName = valueColumnName;
+        this.detailQuery = detailQuery;
+        this.collectionBuildStrategy = collectionBuildStrategy;
+    }
+
+    @Override public String propertyName () {
+        return propertyName;
+    }
+
+    @Override public Map<Object,C> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+        final Map<Object,B> resultRaw = new HashMap<>();
+
+        detailQuery.forEachWithRowAccess(conn, (ignored, row) -> {
+            final Object key = row.get(keyType, detailKeyName);
+            final B coll = resultRaw.computeIfAbsent(key, k -> collectionBuildStrategy.createBuilder());
+            collectionBuildStrategy.addColumnValue(coll, row, valueColumnName);
+        });
+
+        final Map<Object,C> result;
+        if(collectionBuildStrategy.requiresFinalization()) {
+            result = new HashMap<>();
+            for(Map.Entry<Object,B> e: resultRaw.entrySet()) {
+                result.put(e.getKey(), collectionBuildStrategy.finalizeBuilder(e.getValue()));
+            }
+        }
+        else {
+            //noinspection unchecked
+            result = (Map<Object, C>) resultRaw;
+        }
+
+        return result;
+    }
+
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Map<Object,C> memento) {
+        final Object curMasterKey = currentRow.get(keyType, masterKeyName);
+        return memento.containsKey(curMasterKey) ? AOption.some(memento.get(curMasterKey)) : AOption.some(collectionBuildStrategy.empty());
+    }
+}
@@ -19,15 +19,26 @@ public class InjectedToManyProperty<T,C,B> implements InjectedProperty<Map<Objec
     private final AQuery<T> detailQuery;
 
     private final CollectionBuildStrategy<T,B,C> collectionBuildStrategy;
+    private final AOption<Integer> limitPerKey;
 
     public InjectedToManyProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
                                    CollectionBuildStrategy<T,B,C> collectionBuildStrategy) {
+        this(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, collectionBuildStrategy, AOption.none());
+    }
+
+    /**
+     * @param limitPerKey the maximum number of elements per master key; surplus detail rows are skipped, i.e. the detail
+     *                    query's ordering determines which elements are kept
+     */
+    public InjectedToManyProperty (String propertyName, String masterKeyName, Class<?> keyType, String detailKeyName, AQuery<T> detailQuery,
+                                   CollectionBuildStrategy<T,B,C> collectionBuildStrategy, AOption<Integer> limitPerKey) {
         this.propertyName = propertyName;
         this.masterKeyName = masterKeyName;
         this.keyType = keyType;
         this.detailKeyName = detailKeyName;
         this.detailQuery = detailQuery;
         this.collectionBuildStrategy = collectionBuildStrategy;
+        this.limitPerKey = limitPerKey;
     }
 
     @Override public String propertyName () {
@@ -37,11 +48,25 @@ public class InjectedToManyProperty<T,C,B> implements InjectedProperty<Map<Objec
     @Override public Map<Object,C> mementoPerQuery (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
         final Map<Object,B> resultRaw = new HashMap<>();
 
-        detailQuery.forEachWithRowAccess(conn, (el, row) -> {
-            final Object key = row.get(keyType, detailKeyName);
-            final B coll = resultRaw.computeIfAbsent(key, k -> collectionBuildStrategy.createBuilder());
-            collectionBuildStrategy.addElement(coll, el);
-        });
+        if (limitPerKey.isDefined()) {
+            final int limit = limitPerKey.get();
+            final Map<Object,Integer> numElements = new HashMap<>();
+            detailQuery.forEachWithRowAccess(conn, (el, row) -> {
+                final Object key = row.get(keyType, detailKeyName);
+                if (numElements.merge(key, 1, Integer::sum) > limit) {
+                    return;
+                }
+                final B coll = resultRaw.computeIfAbsent(key, k -> collectionBuildStrategy.createBuilder());
+                collectionBuildStrategy.addElement(coll, el);
+            });
+        }
+        else {
+            detailQuery.forEachWithRowAccess(conn, (el, row) -> {
+                final Object key = row.get(keyType, detailKeyName);
+                final B coll = resultRaw.computeIfAbsent(key, k -> collectionBuildStrategy.createBuilder());
+                collectionBuildStrategy.addElement(coll, el);
+            });
+        }
 
         final Map<Object,C> result;
         if(collectionBuildStrategy.requiresFinalization()) {
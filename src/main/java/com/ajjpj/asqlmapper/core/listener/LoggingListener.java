@@ -71,6 +71,10 @@ public class LoggingListener implements SqlEngineEventListener {
         curSnippet.remove();
     }
 
+    @Override public void onBulkChunkCompleted (int numRowsInChunk, long numRowsTotal) {
+        log.debug("finished chunk of {} rows, {} rows so far", numRowsInChunk, numRowsTotal);
+    }
+
     @Override public void onBeforeUpdate (SqlSnippet sql) {
         start.set(Instant.now());
         curSnippet.set(sql);
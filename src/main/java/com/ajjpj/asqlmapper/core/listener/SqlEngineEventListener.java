@@ -23,6 +23,15 @@ public interface SqlEngineEventListener {
     default void onAfterBatchUpdate() {
     }
 
+    /**
+     * Called after each chunk of a chunked bulk operation, e.g. {@link com.ajjpj.asqlmapper.mapper.SqlMapper#insertAll(java.util.Iterator, int, java.util.function.Consumer)}
+     *
+     * @param numRowsInChunk the number of rows processed in the chunk
+     * @param numRowsTotal   the number of rows processed by the operation so far, including this chunk
+     */
+    default void onBulkChunkCompleted(int numRowsInChunk, long numRowsTotal) {
+    }
+
     default void onFailed(Throwable th) {
     }
 }
\ No newline at end of file
@@ -1,12 +1,61 @@
 package com.ajjpj.asqlmapper.mapper;
 
 import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 
 public interface AMapperQuery<T> extends AQuery<T> {
     @Override AMapperQuery<T> withInjectedProperty(InjectedProperty injectedProperty);
+    @Override AMapperQuery<T> withIdentityMap(IdentityMap identityMap);
+
+    /**
+     * registers all beans extracted by this query with a {@link BeanSnapshots} instance, so that later updates can
+     *  write only changed columns, see {@link SqlMapper#update(BeanSnapshots, Object)}
+     */
+    AMapperQuery<T> withSnapshots(BeanSnapshots snapshots);
 
     AMapperQuery<T> withManyToMany(String propertyName);
+    AMapperQuery<T> withManyToMany(String propertyName, String orderBy);
+    AMapperQuery<T> withManyToMany(String propertyName, String orderBy, int limitPerParent);
+
+    /**
+     * @param condition a condition restricting the elements that are loaded; it is evaluated in the database as part
+     *                  of the detail query, with the collection table aliased 'a' and the many-to-many table 'b'
+     */
+    AMapperQuery<T> withManyToMany(String propertyName, SqlSnippet condition);
     AMapperQuery<T> withOneToMany(String propertyName);
+
+    /**
+     * @param orderBy an SQL ORDER BY expression over the detail table's columns, determining the elements' order
+     */
+    AMapperQuery<T> withOneToMany(String propertyName, String orderBy);
+
+    /**
+     * @param orderBy an SQL ORDER BY expression over the detail table's columns, determining the elements' order
+     * @param limitPerParent the maximum number of elements per parent, i.e. the first elements in the given order
+     */
+    AMapperQuery<T> withOneToMany(String propertyName, String orderBy, int limitPerParent);
+
+    /**
+     * @param condition a condition on the detail table's columns, restricting the elements that are loaded. It is
+     *                  evaluated in the database as part of the detail query.
+     */
+    AMapperQuery<T> withOneToMany(String propertyName, SqlSnippet condition);
     AMapperQuery<T> withToOne(String propertyName);
+
+    /**
+     * injects the number of elements of a one-to-many relation into a numeric property, see {@link SqlMapper#oneToManyCount(String)}
+     */
+    AMapperQuery<T> withOneToManyCount(String propertyName);
+
+    /**
+     * injects a self-referencing one-to-many relation, loading it recursively, see {@link SqlMapper#recursiveOneToMany(String, int)}
+     */
+    AMapperQuery<T> withRecursiveOneToMany(String propertyName, int maxDepth);
+
+    /**
+     * injects a self-referencing to-one relation, loading it recursively, see {@link SqlMapper#recursiveToOne(String, int)}
+     */
+    AMapperQuery<T> withRecursiveToOne(String propertyName, int maxDepth);
 }
@@ -8,6 +8,7 @@ import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
 import com.ajjpj.asqlmapper.core.RowExtractor;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.impl.AQueryImpl;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.core.listener.SqlEngineEventListener;
@@ -19,27 +20,60 @@ public class AMapperQueryImpl<T> extends AQueryImpl<T> implements AMapperQuery<T
                             RowExtractor rowExtractor,
                             AVector<SqlEngineEventListener> listeners,
                             AOption<Supplier<Connection>> defaultConnectionSupplier,
-                            AVector<InjectedProperty> injectedProperties) {
-        super(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties);
+                            AVector<InjectedProperty> injectedProperties, AOption<IdentityMap> identityMap) {
+        super(cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, identityMap);
         this.mapper = mapper;
     }
     @Override public AMapperQuery<T> withManyToMany(String propertyName) {
         return withInjectedProperty(mapper.manyToMany(propertyName));
     }
+    @Override public AMapperQuery<T> withManyToMany(String propertyName, String orderBy) {
+        return withInjectedProperty(mapper.manyToMany(propertyName).withOrderBy(orderBy));
+    }
+    @Override public AMapperQuery<T> withManyToMany(String propertyName, String orderBy, int limitPerParent) {
+        return withInjectedProperty(mapper.manyToMany(propertyName).withOrderBy(orderBy).withLimitPerParent(limitPerParent));
+    }
+    @Override public AMapperQuery<T> withManyToMany(String propertyName, SqlSnippet condition) {
+        return withInjectedProperty(mapper.manyToMany(propertyName).withCondition(condition));
+    }
     @Override public AMapperQuery<T> withOneToMany(String propertyName) {
         return withInjectedProperty(mapper.oneToMany(propertyName));
     }
+    @Override public AMapperQuery<T> withOneToMany(String propertyName, String orderBy) {
+        return withInjectedProperty(mapper.oneToMany(propertyName).withOrderBy(orderBy));
+    }
+    @Override public AMapperQuery<T> withOneToMany(String propertyName, String orderBy, int limitPerParent) {
+        return withInjectedProperty(mapper.oneToMany(propertyName).withOrderBy(orderBy).withLimitPerParent(limitPerParent));
+    }
+    @Override public AMapperQuery<T> withOneToMany(String propertyName, SqlSnippet condition) {
+        return withInjectedProperty(mapper.oneToMany(propertyName).withCondition(condition));
+    }
     @Override public AMapperQuery<T> withToOne(String propertyName) {
         return withInjectedProperty(mapper.toOne(propertyName));
     }
+    @Override public AMapperQuery<T> withOneToManyCount(String propertyName) {
+        return withInjectedProperty(mapper.oneToManyCount(propertyName));
+    }
+    @Override public AMapperQuery<T> withRecursiveOneToMany(String propertyName, int maxDepth) {
+        return withInjectedProperty(mapper.recursiveOneToMany(propertyName, maxDepth));
+    }
+    @Override public AMapperQuery<T> withRecursiveToOne(String propertyName, int maxDepth) {
+        return withInjectedProperty(mapper.recursiveToOne(propertyName, maxDepth));
+    }
 
     @Override protected AQueryImpl<T> build(Class<T> cls, SqlSnippet sql, PrimitiveTypeRegistry primTypes, RowExtractor rowExtractor,
                                             AVector<SqlEngineEventListener> listeners, AOption<Supplier<Connection>> defaultConnectionSupplier,
-                                            AVector<InjectedProperty> injectedProperties) {
-        return new AMapperQueryImpl<>(mapper, cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties);
+                                            AVector<InjectedProperty> injectedProperties, AOption<IdentityMap> identityMap) {
+        return new AMapperQueryImpl<>(mapper, cls, sql, primTypes, rowExtractor, listeners, defaultConnectionSupplier, injectedProperties, identityMap);
     }
 
     @Override public AMapperQuery<T> withInjectedProperty(InjectedProperty injectedProperty) {
         return (AMapperQuery<T>) super.withInjectedProperty(injectedProperty);
     }
+    @Override public AMapperQuery<T> withIdentityMap(IdentityMap identityMap) {
+        return (AMapperQuery<T>) super.withIdentityMap(identityMap);
+    }
+    @Override public AMapperQuery<T> withSnapshots(BeanSnapshots snapshots) {
+        return (AMapperQuery<T>) withRowExtractor(new SnapshottingRowExtractor(rowExtractor(), mapper.getBeanMappingRegistry(), snapshots));
+    }
 }
@@ -0,0 +1,105 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+
+/**
+ * BeanSnapshots remember the column values of beans as they were last read from or written to the database, so that
+ *  {@link SqlMapper#update(BeanSnapshots, Object)} and {@link SqlMapper#batchUpdate(BeanSnapshots, List)} can write
+ *  only the columns that changed, and skip beans without changes altogether.<p>
+ *
+ * Beans are identified by their class and primary key rather than by instance, because changes to immutable beans
+ *  produce new instances. Beans are registered either explicitly or by loading them through
+ *  {@link AMapperQuery#withSnapshots(BeanSnapshots)}.<p>
+ *
+ * Snapshots are strictly opt-in. A BeanSnapshots instance is intended for a single unit of work and is <em>not</em>
+ *  thread safe. It has no way of knowing about changes by other means than the mapper, and a stale snapshot can cause
+ *  changes to be skipped.
+ */
+public class BeanSnapshots {
+    private final BeanMappingRegistry mappingRegistry;
+    private final AOption<Supplier<Connection>> defaultConnectionSupplier;
+
+    private final Map<Class<?>, Map<Object, List<Object>>> snapshots = new HashMap<>();
+
+    public BeanSnapshots (BeanMappingRegistry mappingRegistry, AOption<Supplier<Connection>> defaultConnectionSupplier) {
+        this.mappingRegistry = mappingRegistry;
+        this.defaultConnectionSupplier = defaultConnectionSupplier;
+    }
+
+    public void register (Object bean) {
+        register(defaultConnectionSupplier
+                .orElseThrow(() -> new IllegalStateException("no default connection supplier was configured"))
+                .get(), bean);
+    }
+    public void register (Connection conn, Object bean) {
+        register(mappingRegistry.getBeanMapping(conn, bean.getClass()), bean);
+    }
+
+    void register (BeanMapping beanMapping, Object bean) {
+        final Object pk = beanMapping.pkProperty().get(bean);
+        if (pk == null) {
+            throw new IllegalArgumentException("cannot take a snapshot of a bean without a primary key: " + bean);
+        }
+        snapshots.computeIfAbsent(bean.getClass(), c -> new HashMap<>()).put(pk, beanMapping.insertParams(bean, false));
+    }
+
+    /**
+     * removes the snapshot for a given bean, causing the next update to write all columns
+     */
+    public void forget (Class<?> beanType, Object pk) {
+        final Map<Object, List<Object>> byPk = snapshots.get(beanType);
+        if (byPk != null) {
+            byPk.remove(pk);
+        }
+    }
+
+    public void clear () {
+        snapshots.clear();
+    }
+
+    /**
+     * @return the mapped properties (without the primary key) whose values differ from the bean's snapshot, in the
+     *          order of {@link BeanMapping#mappedPropertiesWithoutPk()}, or none() if there is no snapshot for the bean
+     */
+    AOption<AList<String>> changedProperties (BeanMapping beanMapping, Object bean) {
+        final Map<Object, List<Object>> byPk = snapshots.get(bean.getClass());
+        final List<Object> snapshot = byPk != null ? byPk.get(beanMapping.pkProperty().get(bean)) : null;
+        if (snapshot == null) {
+            return AOption.none();
+        }
+
+        final List<Object> current = beanMapping.insertParams(bean, false);
+        final AVector.Builder<String> result = AVector.builder();
+        for (int i = 0; i < current.size(); i++) {
+            if (!Objects.equals(current.get(i), snapshot.get(i))) {
+                result.add(beanMapping.mappedPropertiesWithoutPk().get(i));
+            }
+        }
+        return AOption.some(result.build());
+    }
+
+    public int size () {
+        int result = 0;
+        for (Map<Object, List<Object>> m : snapshots.values()) {
+            result += m.size();
+        }
+        return result;
+    }
+
+    @Override public String toString () {
+        return "BeanSnapshots{" +
+                "size=" + size() +
+                '}';
+    }
+}
@@ -0,0 +1,214 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.mapper.schema.ColumnMetaData;
+import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
+
+/**
+ * A ChunkedUpdate executes an UPDATE or DELETE statement on a large table as a series of statements, each restricted
+ *  to a range of primary key values. This keeps locks, undo and write-ahead log per statement small. It is created by
+ *  {@link SqlMapper#chunkedUpdate(String, Function)}.<p>
+ *
+ * The statement is given as a function that receives the SQL condition for a chunk's key range and returns the
+ *  complete statement, e.g.
+ *  {@code range -> concat(sql("DELETE FROM session WHERE last_access < ? AND", cutoff), range)}.<p>
+ *
+ * The table must have a single primary key column with integral values. The key range is determined when the
+ *  execution starts, from the table's smallest (or a configured start key) to its largest key, and it is walked in
+ *  chunks of a fixed number of key values. Sparse keys therefore lead to chunks with fewer rows, and rows inserted
+ *  with larger keys while the update is running are not affected.<p>
+ *
+ * If a connection supplier is configured, {@link #execute()} commits after every chunk; after a failure, the last
+ *  {@link ChunkedUpdateProgress#nextPk()} reported to the progress listener is the key to resume from with
+ *  {@link #withStartPk(long)}. Optionally, execution is throttled to a maximum number of affected rows per second.<p>
+ *
+ * Instances are immutable, and configuration methods return modified copies.
+ */
+public class ChunkedUpdate {
+    private final SqlEngine sqlEngine;
+    private final SchemaRegistry schemaRegistry;
+    private final String tableName;
+    private final Function<SqlSnippet, SqlSnippet> statement;
+    private final long chunkSize;
+    private final long maxRowsPerSecond;
+    private final AOption<Long> startPk;
+    private final AOption<Supplier<Connection>> connectionSupplier;
+    private final Consumer<ChunkedUpdateProgress> progressListener;
+
+    public ChunkedUpdate (SqlEngine sqlEngine, SchemaRegistry schemaRegistry, String tableName, Function<SqlSnippet, SqlSnippet> statement) {
+        this(sqlEngine, schemaRegistry, tableName, statement, 10_000, 0, AOption.empty(), AOption.empty(), p -> {});
+    }
+
+    private ChunkedUpdate (SqlEngine sqlEngine, SchemaRegistry schemaRegistry, String tableName, Function<SqlSnippet, SqlSnippet> statement, long chunkSize,
+                           long maxRowsPerSecond, AOption<Long> startPk, AOption<Supplier<Connection>> connectionSupplier,
+                           Consumer<ChunkedUpdateProgress> progressListener) {
+        this.sqlEngine = sqlEngine;
+        this.schemaRegistry = schemaRegistry;
+        this.tableName = tableName;
+        this.statement = statement;
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.startPk = startPk;
+        this.connectionSupplier = connectionSupplier;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param chunkSize the number of key values per chunk (default 10000)
+     */
+    public ChunkedUpdate withChunkSize (long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement, chunkSize, maxRowsPerSecond, startPk, connectionSupplier, progressListener);
+    }
+
+    /**
+     * @param maxRowsPerSecond the target maximum of affected rows per second, or 0 (the default) for no throttling
+     */
+    public ChunkedUpdate withMaxRowsPerSecond (long maxRowsPerSecond) {
+        if (maxRowsPerSecond < 0) {
+            throw new IllegalArgumentException("max rows per second must not be negative");
+        }
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement, chunkSize, maxRowsPerSecond, startPk, connectionSupplier, progressListener);
+    }
+
+    /**
+     * @param startPk the smallest key to process, typically a checkpoint from a failed execution
+     */
+    public ChunkedUpdate withStartPk (long startPk) {
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement, chunkSize, maxRowsPerSecond, AOption.some(startPk), connectionSupplier,
+                progressListener);
+    }
+
+    /**
+     * Causes {@link #execute()} to run on a connection from this supplier, committing after every chunk unless the
+     *  connection is in auto-commit mode. The supplier must return a new connection for every call, and
+     *  {@link #execute()} closes it when it is done.
+     */
+    public ChunkedUpdate withConnectionSupplier (Supplier<Connection> connectionSupplier) {
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement, chunkSize, maxRowsPerSecond, startPk, AOption.some(connectionSupplier),
+                progressListener);
+    }
+
+    /**
+     * @param progressListener is called after every chunk, after it was committed
+     */
+    public ChunkedUpdate withProgressListener (Consumer<ChunkedUpdateProgress> progressListener) {
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement, chunkSize, maxRowsPerSecond, startPk, connectionSupplier, progressListener);
+    }
+
+    /**
+     * Executes all chunks, on a connection from the configured connection supplier and committing after every chunk,
+     *  or on the default connection and without committing if there is no connection supplier. A connection from the
+     *  supplier is closed afterwards, also if execution fails.
+     */
+    public ChunkedUpdateProgress execute () {
+        if (connectionSupplier.isPresent()) {
+            final Connection conn = connectionSupplier.get().get();
+            try {
+                return execute(conn, true);
+            }
+            finally {
+                SqlHelper.closeQuietly(conn);
+            }
+        }
+        return execute(sqlEngine.defaultConnection(), false);
+    }
+
+    /**
+     * Executes all chunks on a given connection without committing, leaving transaction handling to the caller.
+     */
+    public ChunkedUpdateProgress execute (Connection conn) {
+        return execute(conn, false);
+    }
+
+    private ChunkedUpdateProgress execute (Connection conn, boolean commitPerChunk) {
+        final ColumnMetaData pkColumn = schemaRegistry.getRequiredTableMetaData(conn, tableName).getUniquePkColumn();
+        if (!isIntegral(pkColumn)) {
+            throw new IllegalArgumentException("chunked updates require an integral primary key, but " + tableName + "." + pkColumn.colName() + " is " + pkColumn.colTypeName());
+        }
+        final String pkName = pkColumn.colName();
+
+        final SqlRow bounds = sqlEngine.rawQuery("SELECT MIN(" + pkName + "), MAX(" + pkName + ") FROM " + tableName).single(conn);
+        final long start = System.nanoTime();
+        if (bounds.get(1) == null) {
+            return new ChunkedUpdateProgress(0, -1, 0, true, 0, 0, Duration.ZERO);
+        }
+        final long lowerBound = startPk.orElse(bounds.getLong(0));
+        final long upperBound = bounds.getLong(1);
+        if (lowerBound > upperBound) {
+            return new ChunkedUpdateProgress(lowerBound, upperBound, lowerBound, true, 0, 0, Duration.ZERO);
+        }
+
+        ChunkedUpdateProgress progress = null;
+        long chunkStart = lowerBound;
+        long numChunks = 0;
+        long numRows = 0;
+        while (true) {
+            // the key range may be wider than Long.MAX_VALUE, but the difference always fits into an unsigned long
+            final boolean isLastChunk = Long.compareUnsigned(upperBound - chunkStart, chunkSize - 1) <= 0;
+            final long chunkEnd = isLastChunk ? upperBound : chunkStart + chunkSize - 1;
+
+            numRows += sqlEngine.executeLargeUpdate(conn, statement.apply(sql(pkName + ">=? AND " + pkName + "<=?", chunkStart, chunkEnd)));
+            if (commitPerChunk) {
+                executeUnchecked(() -> {
+                    if (!conn.getAutoCommit()) {
+                        conn.commit();
+                    }
+                });
+            }
+            numChunks += 1;
+
+            // there is no key after Long.MAX_VALUE
+            final long nextPk = chunkEnd == Long.MAX_VALUE ? chunkEnd : chunkEnd + 1;
+            progress = new ChunkedUpdateProgress(lowerBound, upperBound, nextPk, isLastChunk, numChunks, numRows, Duration.ofNanos(System.nanoTime() - start));
+            progressListener.accept(progress);
+
+            if (isLastChunk) {
+                return progress;
+            }
+            chunkStart = chunkEnd + 1;
+            throttle(numRows, start);
+        }
+    }
+
+    private void throttle (long numRows, long startNanos) {
+        if (maxRowsPerSecond == 0) {
+            return;
+        }
+        final long minElapsedNanos = (long) (numRows * 1_000_000_000.0 / maxRowsPerSecond);
+        final long sleepMillis = (minElapsedNanos - (System.nanoTime() - startNanos)) / 1_000_000;
+        if (sleepMillis > 0) {
+            executeUnchecked(() -> Thread.sleep(sleepMillis));
+        }
+    }
+
+    private static boolean isIntegral (ColumnMetaData column) {
+        switch (column.colType()) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                return true;
+            case NUMERIC:
+            case DECIMAL:
+                return column.scale() == 0;
+            default:
+                return false;
+        }
+    }
+}
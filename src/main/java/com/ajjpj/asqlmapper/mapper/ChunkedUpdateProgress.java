@@ -0,0 +1,110 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A {@link ChunkedUpdate}'s progress after a chunk was executed (and committed, if the chunked update commits).<p>
+ *
+ * {@link #nextPk()} is the checkpoint for resuming after a failure: all keys below it are done, so passing it to
+ *  {@link ChunkedUpdate#withStartPk(long)} continues where the update left off.
+ */
+public class ChunkedUpdateProgress {
+    private final long startPk;
+    private final long endPk;
+    private final long nextPk;
+    private final boolean done;
+    private final long numChunks;
+    private final long numRows;
+    private final Duration elapsed;
+
+    public ChunkedUpdateProgress (long startPk, long endPk, long nextPk, boolean done, long numChunks, long numRows, Duration elapsed) {
+        this.startPk = startPk;
+        this.endPk = endPk;
+        this.nextPk = nextPk;
+        this.done = done;
+        this.numChunks = numChunks;
+        this.numRows = numRows;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the smallest key of this execution's range
+     */
+    public long startPk () {
+        return startPk;
+    }
+
+    /**
+     * @return the largest key of this execution's range, i.e. the largest key in the table when it started
+     */
+    public long endPk () {
+        return endPk;
+    }
+
+    /**
+     * @return the smallest key that was not processed yet, or {@link Long#MAX_VALUE} if the execution processed all
+     *  keys up to and including {@link Long#MAX_VALUE}
+     */
+    public long nextPk () {
+        return nextPk;
+    }
+
+    public boolean isDone () {
+        return done;
+    }
+
+    public long numChunks () {
+        return numChunks;
+    }
+
+    /**
+     * @return the total number of rows affected so far in this execution
+     */
+    public long numRows () {
+        return numRows;
+    }
+
+    public Duration elapsed () {
+        return elapsed;
+    }
+
+    /**
+     * @return the fraction of this execution's key range that is processed, between 0 and 1
+     */
+    public double fractionDone () {
+        if (isDone()) {
+            return 1.0;
+        }
+        return ((double) nextPk - startPk) / ((double) endPk - startPk + 1);
+    }
+
+    @Override public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChunkedUpdateProgress that = (ChunkedUpdateProgress) o;
+        return startPk == that.startPk &&
+                endPk == that.endPk &&
+                nextPk == that.nextPk &&
+                done == that.done &&
+                numChunks == that.numChunks &&
+                numRows == that.numRows &&
+                Objects.equals(elapsed, that.elapsed);
+    }
+
+    @Override public int hashCode () {
+        return Objects.hash(startPk, endPk, nextPk, done, numChunks, numRows, elapsed);
+    }
+
+    @Override public String toString () {
+        return "ChunkedUpdateProgress{" +
+                "startPk=" + startPk +
+                ", endPk=" + endPk +
+                ", nextPk=" + nextPk +
+                ", done=" + done +
+                ", numChunks=" + numChunks +
+                ", numRows=" + numRows +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+}
@@ -1,5 +1,10 @@
 package com.ajjpj.asqlmapper.mapper;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.util.AOption;
 
 public interface DatabaseDialect {
     DatabaseDialect H2 = new H2Dialect();
@@ -17,13 +22,153 @@ public interface DatabaseDialect {
         return tableName;
     }
 
+    /**
+     * @return true if the database supports window functions like {@code ROW_NUMBER() OVER (PARTITION BY ... ORDER BY ...)}
+     */
+    default boolean supportsWindowFunctions() {
+        return true;
+    }
+
+    /**
+     * @return the keyword(s) introducing a recursive common table expression
+     */
+    default String withRecursive() {
+        return "WITH RECURSIVE";
+    }
+
+    /**
+     * @return the maximum number of bind parameters in a single statement. Multi-row statements are split into chunks
+     *          that stay below this limit.
+     */
+    default int maxBindParameters() {
+        return 32767;
+    }
+
+    /**
+     * @return the maximum number of rows in a single multi-row {@code INSERT ... VALUES (...),(...)} statement
+     */
+    default int maxRowsPerInsert() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return true if the JDBC driver returns generated keys for all items of a batch insert, allowing many beans with
+     *          auto-generated primary keys to be inserted as a single JDBC batch
+     */
+    default boolean supportsBatchGeneratedKeys() {
+        return false;
+    }
+
+    /**
+     * @return SQL for inserting a row or updating it if a row with the same primary key exists. The statement has one
+     *          bind parameter per column, in the order of {@code columns} (which includes the primary key column).
+     */
+    default String upsertSql(String tableName, String pkColumn, AList<String> columns) {
+        throw new UnsupportedOperationException("upsert is not supported for " + getClass().getName());
+    }
+
+    /**
+     * @return a query returning the next value of a given sequence as a single row with a single column
+     */
+    default String nextSequenceValueSql(String sequenceName) {
+        return "SELECT NEXT VALUE FOR " + sequenceName;
+    }
+
+    /**
+     * @return a query returning the increment of the sequence whose (unqualified) name is the query's only bind parameter
+     */
+    default String sequenceIncrementSql() {
+        return "SELECT increment FROM information_schema.sequences WHERE UPPER(sequence_name)=UPPER(?)";
+    }
+
+    /**
+     * @return the name of the sequence a column's default value draws from, or none() if the default value does not
+     *          refer to a sequence
+     */
+    default AOption<String> sequenceNameFromColumnDefault(String columnDefault) {
+        final Matcher m = Pattern.compile("NEXT VALUE FOR\\s+([\\w.\"\\[\\]]+)", Pattern.CASE_INSENSITIVE).matcher(columnDefault);
+        return m.find() ? AOption.some(m.group(1)) : AOption.none();
+    }
+
+    /**
+     * {@code MERGE INTO target t USING <source> ON (...) WHEN MATCHED ... WHEN NOT MATCHED ...}, as supported by
+     *  Oracle and SQL Server. The source must be aliased as {@code s}.
+     */
+    static String mergeUsingSql(String tableName, String pkColumn, AList<String> columns, String source) {
+        final AList<String> nonPkColumns = columns.filterNot(c -> c.equals(pkColumn));
+
+        final StringBuilder result = new StringBuilder("MERGE INTO " + tableName + " t USING " + source + " ON (t." + pkColumn + "=s." + pkColumn + ")");
+        if (nonPkColumns.nonEmpty()) {
+            result.append(" WHEN MATCHED THEN UPDATE SET ").append(nonPkColumns.map(c -> "t." + c + "=s." + c).mkString(", "));
+        }
+        result.append(" WHEN NOT MATCHED THEN INSERT (").append(columns.mkString(", ")).append(") VALUES (")
+                .append(columns.map(c -> "s." + c).mkString(", ")).append(")");
+        return result.toString();
+    }
+
     class PostgresqlDialect implements DatabaseDialect {
+        @Override public boolean supportsBatchGeneratedKeys () {
+            return true;
+        }
+        @Override public String upsertSql (String tableName, String pkColumn, AList<String> columns) {
+            final AList<String> nonPkColumns = columns.filterNot(c -> c.equals(pkColumn));
+            return "INSERT INTO " + tableName + "(" + columns.mkString(", ") + ") VALUES (" + columns.map(c -> "?").mkString(",") + ")" +
+                    " ON CONFLICT (" + pkColumn + ") DO " +
+                    (nonPkColumns.isEmpty() ? "NOTHING" : "UPDATE SET " + nonPkColumns.map(c -> c + "=EXCLUDED." + c).mkString(", "));
+        }
+        @Override public int maxBindParameters () {
+            // the wire protocol transfers the number of parameters as a 16 bit value
+            return 65535;
+        }
+        @Override public String nextSequenceValueSql (String sequenceName) {
+            return "SELECT nextval('" + sequenceName + "')";
+        }
+        @Override public AOption<String> sequenceNameFromColumnDefault (String columnDefault) {
+            final Matcher m = Pattern.compile("nextval\\('([^']+)'", Pattern.CASE_INSENSITIVE).matcher(columnDefault);
+            return m.find() ? AOption.some(m.group(1)) : AOption.none();
+        }
     }
 
     class OracleDialect implements DatabaseDialect {
+        @Override public String withRecursive () {
+            return "WITH";
+        }
+        @Override public int maxBindParameters () {
+            return 65535;
+        }
+        @Override public String upsertSql (String tableName, String pkColumn, AList<String> columns) {
+            return DatabaseDialect.mergeUsingSql(tableName, pkColumn, columns, "(SELECT " + columns.map(c -> "? AS " + c).mkString(", ") + " FROM dual) s");
+        }
+        @Override public String nextSequenceValueSql (String sequenceName) {
+            return "SELECT " + sequenceName + ".NEXTVAL FROM dual";
+        }
+        @Override public String sequenceIncrementSql () {
+            return "SELECT increment_by FROM user_sequences WHERE sequence_name=UPPER(?)";
+        }
+        @Override public AOption<String> sequenceNameFromColumnDefault (String columnDefault) {
+            final Matcher m = Pattern.compile("([\\w.\"]+)\\.\"?NEXTVAL\"?", Pattern.CASE_INSENSITIVE).matcher(columnDefault);
+            return m.find() ? AOption.some(m.group(1)) : AOption.none();
+        }
     }
 
     class SqlServerDialect implements DatabaseDialect {
+        @Override public String withRecursive () {
+            return "WITH";
+        }
+        @Override public int maxBindParameters () {
+            return 2100;
+        }
+        @Override public int maxRowsPerInsert () {
+            // the limit for table value constructors
+            return 1000;
+        }
+        @Override public String upsertSql (String tableName, String pkColumn, AList<String> columns) {
+            // SQL Server requires MERGE statements to be terminated with a semicolon
+            return DatabaseDialect.mergeUsingSql(tableName, pkColumn, columns, "(VALUES (" + columns.map(c -> "?").mkString(",") + ")) AS s(" + columns.mkString(", ") + ")") + ";";
+        }
+        @Override public String sequenceIncrementSql () {
+            return "SELECT CAST(increment AS BIGINT) FROM sys.sequences WHERE name=?";
+        }
     }
 
     class H2Dialect implements DatabaseDialect {
@@ -36,5 +181,12 @@ public interface DatabaseDialect {
         @Override public String normalizeTableName (String schemaName) {
             return schemaName.toUpperCase();
         }
+        @Override public boolean supportsWindowFunctions () {
+            // window functions with PARTITION BY were introduced in H2 1.4.198
+            return false;
+        }
+        @Override public String upsertSql (String tableName, String pkColumn, AList<String> columns) {
+            return "MERGE INTO " + tableName + "(" + columns.mkString(", ") + ") KEY(" + pkColumn + ") VALUES (" + columns.map(c -> "?").mkString(",") + ")";
+        }
     }
 }
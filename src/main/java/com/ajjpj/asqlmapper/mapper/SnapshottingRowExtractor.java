@@ -0,0 +1,53 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+
+/**
+ * Decorates a query's row extractor, registering every extracted bean with a {@link BeanSnapshots} instance.
+ */
+class SnapshottingRowExtractor implements RowExtractor {
+    private final RowExtractor inner;
+    private final BeanMappingRegistry mappingRegistry;
+    private final BeanSnapshots snapshots;
+
+    SnapshottingRowExtractor (RowExtractor inner, BeanMappingRegistry mappingRegistry, BeanSnapshots snapshots) {
+        this.inner = inner;
+        this.mappingRegistry = mappingRegistry;
+        this.snapshots = snapshots;
+    }
+
+    @Override public boolean canHandle (Class<?> cls) {
+        return inner.canHandle(cls);
+    }
+
+    @Override public Object mementoPerQuery (Class<?> cls, PrimitiveTypeRegistry primTypes, ResultSet rs, boolean isStreaming) throws SQLException {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(rs.getStatement().getConnection(), cls);
+        return new Memento(beanMapping, inner.mementoPerQuery(cls, primTypes, rs, isStreaming));
+    }
+
+    @Override public <T> T fromSql (Class<T> cls, PrimitiveTypeRegistry primTypes, SqlRow row, Object mementoPerQuery, boolean isStreaming,
+                                    Map<String, Object> injectedPropsValues) throws SQLException {
+        final Memento memento = (Memento) mementoPerQuery;
+        final T result = inner.fromSql(cls, primTypes, row, memento.inner, isStreaming, injectedPropsValues);
+        snapshots.register(memento.beanMapping, result);
+        return result;
+    }
+
+    private static class Memento {
+        final BeanMapping beanMapping;
+        final Object inner;
+
+        Memento (BeanMapping beanMapping, Object inner) {
+            this.beanMapping = beanMapping;
+            this.inner = inner;
+        }
+    }
+}
@@ -3,40 +3,80 @@ package com.ajjpj.asqlmapper.mapper;
 import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
 import static com.ajjpj.asqlmapper.core.SqlSnippet.*;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.immutable.AVector;
-import com.ajjpj.acollections.mutable.AMutableListWrapper;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.BulkLoader;
 import com.ajjpj.asqlmapper.core.SqlBuilder;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
 import com.ajjpj.asqlmapper.javabeans.BeanProperty;
+import com.ajjpj.asqlmapper.javabeans.annotations.OneToMany;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ManyToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.AdaptiveRelationLoading;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedManyToMany;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedOneToMany;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedOneToManyAggregate;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedRecursiveRelation;
 import com.ajjpj.asqlmapper.mapper.injectedproperties.MappedToOne;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 
 public class SqlMapper {
+    /**
+     * the maximum number of statements per JDBC batch for bulk operations
+     */
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
     private final SqlEngine sqlEngine;
     private final BeanMappingRegistry mappingRegistry;
     private final SchemaRegistry schemaRegistry;
     private final TableNameExtractor tableNameExtractor;
+    private final AOption<AdaptiveRelationLoading> adaptiveRelationLoading;
+
+    private final Map<Class<?>, AOption<String>> identityKeyColumns = new ConcurrentHashMap<>();
 
     public SqlMapper(SqlEngine sqlEngine, BeanMappingRegistry mappingRegistry, SchemaRegistry schemaRegistry, TableNameExtractor tableNameExtractor) {
+        this(sqlEngine, mappingRegistry, schemaRegistry, tableNameExtractor, AOption.none());
+    }
+
+    /**
+     * @param adaptiveRelationLoading if defined, relations choose between loading strategies based on observed costs,
+     *                                see {@link AdaptiveRelationLoading}
+     */
+    public SqlMapper(SqlEngine sqlEngine, BeanMappingRegistry mappingRegistry, SchemaRegistry schemaRegistry, TableNameExtractor tableNameExtractor,
+                     AOption<AdaptiveRelationLoading> adaptiveRelationLoading) {
         this.schemaRegistry = schemaRegistry;
+        this.adaptiveRelationLoading = adaptiveRelationLoading;
         this.tableNameExtractor = tableNameExtractor;
         this.sqlEngine = sqlEngine.withRowExtractor(mappingRegistry.metaDataRegistry().asRowExtractor());
         this.mappingRegistry = mappingRegistry;
@@ -59,38 +99,106 @@ public class SqlMapper {
 
     public <T> AMapperQuery<T> query(Class<T> beanType, SqlSnippet sql, SqlSnippet... moreSql) {
         return new AMapperQueryImpl<>(this, beanType, concat(sql, moreSql), engine().primitiveTypeRegistry(), engine().rowExtractorFor(beanType),
-                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty());
+                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty(), AOption.none());
     }
     public <T> AMapperQuery<T> query(Class<T> beanType, String sql, Object... params) {
         return new AMapperQueryImpl<>(this, beanType, sql(sql, params), engine().primitiveTypeRegistry(), engine().rowExtractorFor(beanType),
-                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty());
+                engine().listeners(), engine().defaultConnectionSupplier(), AVector.empty(), AOption.none());
+    }
+
+    /**
+     * @return a new {@link IdentityMap} that identifies beans by their mapped primary key, for use with
+     *          {@link AMapperQuery#withIdentityMap(IdentityMap)}. Beans without a mapped table are not shared.
+     */
+    public IdentityMap identityMap() {
+        return new IdentityMap(this::identityKeyColumn);
+    }
+
+    /**
+     * @return a new, empty {@link BeanSnapshots} instance for tracking changes to beans, see {@link #update(BeanSnapshots, Object)}
+     */
+    public BeanSnapshots snapshots() {
+        return new BeanSnapshots(mappingRegistry, engine().defaultConnectionSupplier());
+    }
+
+    private AOption<String> identityKeyColumn(Connection conn, Class<?> beanType) {
+        return identityKeyColumns.computeIfAbsent(beanType, bt -> {
+            if (!mappingRegistry.canHandle(bt)) {
+                return AOption.none();
+            }
+            try {
+                return AOption.some(mappingRegistry.getBeanMapping(conn, bt).pkProperty().columnName());
+            }
+            catch (IllegalArgumentException exc) {
+                // no mapped table or no unique primary key
+                return AOption.none();
+            }
+        });
     }
 
     public MappedOneToMany oneToMany(String propertyName) {
-        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), adaptiveRelationLoading);
     }
     public MappedOneToMany oneToMany(String propertyName, OneToManySpec spec) {
-        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedOneToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), adaptiveRelationLoading);
+    }
+
+    /**
+     * @return an injected property holding the number of elements of a one-to-many relation, without loading the elements.
+     *          The property must be numeric; it is typically annotated with
+     *          {@link com.ajjpj.asqlmapper.javabeans.annotations.OneToMany} to specify the element type or table.
+     */
+    public MappedOneToManyAggregate oneToManyCount(String propertyName) {
+        return oneToManyAggregate(propertyName, "COUNT(*)", AOption.some(0L));
+    }
+
+    /**
+     * @param aggregateExpression an SQL aggregate expression over the relation's element table, e.g. {@code SUM(amount)}
+     * @param valueIfAbsent       the value for owners without elements; none() leaves the property unset
+     */
+    public MappedOneToManyAggregate oneToManyAggregate(String propertyName, String aggregateExpression, AOption<Object> valueIfAbsent) {
+        return new MappedOneToManyAggregate(propertyName, aggregateExpression, valueIfAbsent, mappingRegistry, engine().primitiveTypeRegistry(),
+                (cls, sql) -> query(cls, sql), Optional.empty());
+    }
+    public MappedOneToManyAggregate oneToManyAggregate(String propertyName, String aggregateExpression, AOption<Object> valueIfAbsent, ForeignKeySpec spec) {
+        return new MappedOneToManyAggregate(propertyName, aggregateExpression, valueIfAbsent, mappingRegistry, engine().primitiveTypeRegistry(),
+                (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+    }
+
+    /**
+     * @return an injected property holding the children of a bean in a self-referencing one-to-many relation, with
+     *          their children etc. loaded recursively up to a given depth in a single query
+     */
+    public MappedRecursiveRelation recursiveOneToMany(String propertyName, int maxDepth) {
+        return new MappedRecursiveRelation(propertyName, MappedRecursiveRelation.Direction.DESCENDANTS, maxDepth, mappingRegistry, schemaRegistry, engine());
+    }
+
+    /**
+     * @return an injected property holding the parent of a bean in a self-referencing to-one relation, with its parent
+     *          etc. loaded recursively up to a given depth in a single query
+     */
+    public MappedRecursiveRelation recursiveToOne(String propertyName, int maxDepth) {
+        return new MappedRecursiveRelation(propertyName, MappedRecursiveRelation.Direction.ANCESTORS, maxDepth, mappingRegistry, schemaRegistry, engine());
     }
 
     public MappedManyToMany manyToMany(String propertyName) {
-        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), adaptiveRelationLoading);
     }
     public MappedManyToMany manyToMany(String propertyName, ManyToManySpec spec) {
-        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedManyToMany(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), adaptiveRelationLoading);
     }
 
     public InjectedProperty toOne(String propertyName) {
-        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty());
+        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.empty(), adaptiveRelationLoading);
     }
     public InjectedProperty toOne(String propertyName, ToOneSpec spec) {
-        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec));
+        return new MappedToOne(propertyName, mappingRegistry, (cls, sql) -> query(cls, sql), Optional.ofNullable(spec), adaptiveRelationLoading);
     }
 
     public <T> AList<T> insertMany(List<T> os) {
         return insertMany(engine().defaultConnection(), os);
     }
-    private <T> AList<T> insertMany(Connection conn, List<T> os) {
+    public <T> AList<T> insertMany(Connection conn, List<T> os) {
         if (os.isEmpty()) {
             return AList.empty();
         }
@@ -102,50 +210,210 @@ public class SqlMapper {
             return insertManyProvidingPk(conn, beanMapping, os);
         }
     }
+    /**
+     * Inserts beans together with the elements of their {@link OneToMany} properties, recursively. The graph is saved
+     *  level by level: all beans of a level are inserted with {@link #insertMany(List)}, then their (generated) keys
+     *  are set as foreign keys on all their elements, which are in turn inserted together. Saving a graph therefore
+     *  takes a number of statements that depends on its depth (and the chunk sizes) rather than on its number of beans.<p>
+     *
+     * All beans of a level must have the same type. {@link com.ajjpj.asqlmapper.javabeans.annotations.ManyToOne}
+     *  references are not cascaded, i.e. referenced beans must be stored already.
+     *
+     * @return the saved beans, with generated primary keys and with their to-many properties holding the saved elements
+     */
+    public <T> AList<T> saveGraph(List<T> beans) {
+        return saveGraph(engine().defaultConnection(), beans);
+    }
+    public <T> AList<T> saveGraph(Connection conn, List<T> beans) {
+        if (beans.isEmpty()) {
+            return AList.empty();
+        }
+
+        final Object[] result = insertMany(conn, beans).toArray();
+        final Class<?> beanType = beans.get(0).getClass();
+        final AList<BeanProperty> toManyProperties = mappingRegistry.getBeanMapping(conn, beanType).beanMetaData().beanProperties().values()
+                .filter(p -> p.getAnnotation(OneToMany.class).isPresent())
+                .toVector();
+
+        for (BeanProperty toManyProperty : toManyProperties) {
+            final OneToManySpec spec = mappingRegistry.resolveOneToMany(conn, beanType, toManyProperty.name());
+            final BeanProperty ownerKeyProperty = propertyForColumn(conn, beanType, spec.foreignKeySpec().pkColumnName());
+            final BeanProperty fkProperty = propertyForColumn(conn, spec.elementClass(), spec.foreignKeySpec().fkColumnName());
+
+            final List<Object> elements = new ArrayList<>();
+            final int[] numElements = new int[beans.size()];
+            for (int i = 0; i < beans.size(); i++) {
+                final Object coll = toManyProperty.get(beans.get(i));
+                if (coll == null) {
+                    continue;
+                }
+                final Object ownerKey = ownerKeyProperty.get(result[i]);
+                for (Object el : (Iterable<?>) coll) {
+                    elements.add(fkProperty.set(el, ownerKey));
+                    numElements[i] += 1;
+                }
+            }
+
+            final Iterator<Object> savedElements = saveGraph(conn, elements).iterator();
+            final CollectionBuildStrategy collectionBuildStrategy = spec.collectionBuildStrategy();
+            for (int i = 0; i < beans.size(); i++) {
+                if (toManyProperty.get(beans.get(i)) == null) {
+                    continue;
+                }
+                final Object builder = collectionBuildStrategy.createBuilder();
+                for (int j = 0; j < numElements[i]; j++) {
+                    //noinspection unchecked
+                    collectionBuildStrategy.addElement(builder, savedElements.next());
+                }
+                //noinspection unchecked
+                result[i] = toManyProperty.set(result[i], collectionBuildStrategy.requiresFinalization() ? collectionBuildStrategy.finalizeBuilder(builder) : builder);
+            }
+        }
+
+        //noinspection unchecked
+        return (AList<T>) AVector.from(result);
+    }
+
+    /**
+     * Inserts beans from a stream in chunks of a given size, see {@link #insertAll(Connection, Iterator, int, Consumer)}.
+     */
+    public <T> long insertAll(Stream<T> beans, int chunkSize) {
+        return insertAll(beans, chunkSize, chunk -> {});
+    }
+    public <T> long insertAll(Stream<T> beans, int chunkSize, Consumer<AList<T>> onChunkInserted) {
+        return insertAll(beans.iterator(), chunkSize, onChunkInserted);
+    }
+    public <T> long insertAll(Iterator<T> beans, int chunkSize, Consumer<AList<T>> onChunkInserted) {
+        return insertAll(engine().defaultConnection(), beans, chunkSize, onChunkInserted);
+    }
+
+    /**
+     * Inserts an arbitrary number of beans of the same type without materializing them: at most {@code chunkSize}
+     *  beans are held in memory at any time, and each chunk is inserted like {@link #insertMany(List)}. Listeners are
+     *  notified after every chunk.
+     *
+     * @param onChunkInserted is called with the inserted beans (including generated primary keys) of every chunk
+     * @return the total number of inserted beans
+     */
+    public <T> long insertAll(Connection conn, Iterator<T> beans, int chunkSize, Consumer<AList<T>> onChunkInserted) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+
+        final List<T> chunk = new ArrayList<>(chunkSize);
+        long numInserted = 0;
+        while (beans.hasNext()) {
+            chunk.add(beans.next());
+            if (chunk.size() == chunkSize || !beans.hasNext()) {
+                final AList<T> inserted = insertMany(conn, chunk);
+                onChunkInserted.accept(inserted);
+
+                numInserted += chunk.size();
+                final int numInChunk = chunk.size();
+                final long numTotal = numInserted;
+                sqlEngine.listeners().forEach(l -> l.onBulkChunkCompleted(numInChunk, numTotal));
+                chunk.clear();
+            }
+        }
+        return numInserted;
+    }
+
     private <T> AVector<T> insertManyAutoGenerated(Connection conn, BeanMapping beanMapping, List<T> os) {
+        if (beanMapping.pkProperty() != null && schemaRegistry.dialect().supportsBatchGeneratedKeys()) {
+            return insertManyAutoGeneratedBatched(conn, beanMapping, os);
+        }
+
         return executeUnchecked(() -> {
             final BeanProperty pkProperty = beanMapping.pkProperty();
+            final AVector.Builder<T> result = AVector.builder();
+
+            // chunks are inserted in order, so generated keys can be assigned to the beans in order
+            for (List<T> chunk : insertChunks(beanMapping, os, false)) {
+                final SqlBuilder builder = SqlSnippet.builder();
+                boolean first = true;
+                for (T o : chunk) {
+                    if (beanMapping != mappingRegistry.getBeanMapping(conn, o.getClass())) {
+                        throw new IllegalArgumentException("multi-insert only for beans of the same type");
+                    }
+                    appendInsertFragmentForElement(beanMapping, builder, first, o, false);
+                    first = false;
+                }
+
+                if (pkProperty != null) {
+                    final List<?> pkValues = sqlEngine.insertSingleColPkInCol(pkProperty.columnName(), pkProperty.propClass(), builder.build()).executeMulti(conn);
+                    if (pkValues.size() != chunk.size()) {
+                        throw new IllegalStateException("inserting " + chunk.size() + " rows returned " + pkValues.size() + " - mismatch");
+                    }
+
+                    for (int i = 0; i < chunk.size(); i++) {
+                        //noinspection unchecked
+                        result.add((T) pkProperty.set(chunk.get(i), pkValues.get(i)));
+                    }
+                } else {
+                    sqlEngine.executeUpdate(conn, builder.build());
+                    result.addAll(chunk);
+                }
+            }
+            return result.build();
+        });
+    }
+
+    /**
+     * Inserts one statement per bean as a single JDBC batch. All statements have the same SQL text, and there are no
+     *  limits on the number of bind parameters per statement to take into account.
+     */
+    private <T> AVector<T> insertManyAutoGeneratedBatched(Connection conn, BeanMapping beanMapping, List<T> os) {
+        final BeanProperty pkProperty = beanMapping.pkProperty();
 
-            final SqlBuilder builder = SqlSnippet.builder();
-            boolean first = true;
-            for (T o : os) {
+        final AVector.Builder<T> result = AVector.builder();
+        for (List<T> chunk : chunks(os, BATCH_CHUNK_SIZE)) {
+            final List<SqlSnippet> statements = new ArrayList<>(chunk.size());
+            for (T o : chunk) {
                 if (beanMapping != mappingRegistry.getBeanMapping(conn, o.getClass())) {
                     throw new IllegalArgumentException("multi-insert only for beans of the same type");
                 }
-                appendInsertFragmentForElement(beanMapping, builder, first, o, false);
-                first = false;
+                statements.add(insertStatement(beanMapping, o, false));
             }
 
-            if (pkProperty != null) {
-                final List<?> pkValues = sqlEngine.insertSingleColPkInCol(pkProperty.columnName(), pkProperty.propClass(), builder.build()).executeMulti(conn);
-                if (pkValues.size() != os.size()) {
-                    throw new IllegalStateException("inserting " + os.size() + " rows returned " + pkValues.size() + " - mismatch");
-                }
+            final List<?> pkValues = sqlEngine.batchInsertSingleColPkInCol(pkProperty.columnName(), pkProperty.propClass(), statements).executeMulti(conn);
+            if (pkValues.size() != chunk.size()) {
+                throw new IllegalStateException("inserting " + chunk.size() + " rows returned " + pkValues.size() + " - mismatch");
+            }
 
-                final AVector.Builder<T> result = AVector.builder();
-                for (int i = 0; i < os.size(); i++) {
-                    //noinspection unchecked
-                    result.add((T) pkProperty.set(os.get(i), pkValues.get(i)));
-                }
-                return result.build();
-            } else {
-                sqlEngine.executeUpdate(conn, builder.build());
-                return AVector.from(os);
+            for (int i = 0; i < chunk.size(); i++) {
+                //noinspection unchecked
+                result.add((T) pkProperty.set(chunk.get(i), pkValues.get(i)));
             }
-        });
+        }
+        return result.build();
+    }
+
+    /**
+     * Splits a multi-row insert into chunks that stay within the dialect's limits for bind parameters and rows per
+     *  statement. All chunks except the last have the same size and therefore the same SQL text, allowing the driver
+     *  and database to reuse prepared statements.
+     */
+    private <T> List<List<T>> insertChunks(BeanMapping beanMapping, List<T> os, boolean includePkColumn) {
+        final DatabaseDialect dialect = schemaRegistry.dialect();
+        final int numColumns = (includePkColumn ? beanMapping.mappedProperties() : beanMapping.mappedPropertiesWithoutPk()).size();
+        final int chunkSize = Math.max(1, Math.min(dialect.maxRowsPerInsert(), dialect.maxBindParameters() / Math.max(1, numColumns)));
+
+        return chunks(os, chunkSize);
+    }
+
+    private static <T> List<List<T>> chunks(List<T> os, int chunkSize) {
+        final List<List<T>> result = new ArrayList<>();
+        for (int from = 0; from < os.size(); from += chunkSize) {
+            result.add(os.subList(from, Math.min(os.size(), from + chunkSize)));
+        }
+        return result;
     }
 
     private <T> void appendInsertFragmentForElement(BeanMapping beanMapping, SqlBuilder builder, boolean first, T o, boolean includePkColumn) {
         if (first) {
             builder.append(insertStatement(beanMapping, o, includePkColumn));
         } else {
-            final AList<String> properties = includePkColumn ? beanMapping.mappedProperties() : beanMapping.mappedPropertiesWithoutPk();
-
-            builder
-                    .append(",(")
-                    .append(params(properties.map(p -> beanMapping.beanProperty(p).get(o))))
-                    .append(")")
-            ;
+            builder.append(sql("," + beanMapping.insertValuesSql(includePkColumn), beanMapping.insertParams(o, includePkColumn)));
         }
     }
 
@@ -153,23 +421,47 @@ public class SqlMapper {
         return executeUnchecked(() -> {
             final AVector.Builder<T> result = AVector.builder();
 
-            final SqlBuilder builder = SqlSnippet.builder();
-            boolean first = true;
-            for (Object withoutPk : os) {
-                if (beanMapping != mappingRegistry.getBeanMapping(conn, withoutPk.getClass())) {
-                    throw new IllegalArgumentException("multi-insert only for beans of the same type");
+            for (List<T> chunk : insertChunks(beanMapping, os, true)) {
+                final SqlBuilder builder = SqlSnippet.builder();
+                boolean first = true;
+                for (Object withoutPk : chunk) {
+                    if (beanMapping != mappingRegistry.getBeanMapping(conn, withoutPk.getClass())) {
+                        throw new IllegalArgumentException("multi-insert only for beans of the same type");
+                    }
+                    final Object withPk = withNewPk(conn, beanMapping, withoutPk);
+                    appendInsertFragmentForElement(beanMapping, builder, first, withPk, true);
+                    //noinspection unchecked
+                    result.add((T) withPk);
+                    first = false;
                 }
-                final AOption<Object> optPk = beanMapping.pkStrategy().newPrimaryKey(conn);
-                final Object withPk = optPk.fold(withoutPk, (res, el) -> beanMapping.pkProperty().set(res, el));
-                appendInsertFragmentForElement(beanMapping, builder, first, withPk, true);
-                first = false;
-            }
 
-            sqlEngine.executeUpdate(conn, builder.build());
+                sqlEngine.executeUpdate(conn, builder.build());
+            }
             return result.build();
         });
     }
 
+    /**
+     * Sets a new primary key from the bean's pk strategy, unless the strategy keeps explicit primary keys and the bean
+     *  has one, i.e. one that is neither null nor zero.
+     */
+    private Object withNewPk(Connection conn, BeanMapping beanMapping, Object bean) {
+        final BeanProperty pkProperty = beanMapping.pkProperty();
+        if (beanMapping.pkStrategy().keepsExplicitPk() && isExplicitPk(pkProperty.get(bean))) {
+            return bean;
+        }
+        return beanMapping.pkStrategy().newPrimaryKey(conn).fold(bean, (res, el) -> pkProperty.set(res, el));
+    }
+    private static boolean isExplicitPk(Object pk) {
+        if (pk instanceof BigDecimal) {
+            return ((BigDecimal) pk).signum() != 0;
+        }
+        if (pk instanceof Number) {
+            return ((Number) pk).longValue() != 0;
+        }
+        return pk != null;
+    }
+
     public <T> T insert(T o) {
         return insert(engine().defaultConnection(), o);
     }
@@ -192,23 +484,11 @@ public class SqlMapper {
         });
     }
     private SqlSnippet insertStatement(BeanMapping beanMapping, Object bean, boolean withPk) {
-        final AList<String> properties = withPk ? beanMapping.mappedProperties() : beanMapping.mappedPropertiesWithoutPk();
-
-        final SqlSnippet into = commaSeparated(properties.map(p -> sql(beanMapping.beanProperty(p).columnName())));
-        final SqlSnippet values = params(properties.map(p -> beanMapping.beanProperty(p).get(bean)));
-
-        return concat(
-                sql("INSERT INTO " + beanMapping.tableName() + "("),
-                into,
-                sql(") VALUES ("),
-                values,
-                sql(")")
-        );
+        return sql(beanMapping.insertSql(withPk), beanMapping.insertParams(bean, withPk));
     }
     private <T> T insertProvidingPk(Connection conn, Object beanWithoutPk, BeanMapping beanMapping) {
         return executeUnchecked(() -> {
-            final AOption<Object> optPk = beanMapping.pkStrategy().newPrimaryKey(conn);
-            final Object beanWithPk = optPk.fold(beanWithoutPk, (res, el) -> beanMapping.pkProperty().set(res, el));
+            final Object beanWithPk = withNewPk(conn, beanMapping, beanWithoutPk);
 
             final SqlSnippet insertStmt = insertStatement(beanMapping, beanWithPk, true);
 
@@ -218,23 +498,65 @@ public class SqlMapper {
         });
     }
 
+    /**
+     * Inserts a bean, or updates the existing row with the bean's primary key, in a single statement. The bean must
+     *  have its primary key set.
+     */
+    public long upsert(Object bean) {
+        return upsert(engine().defaultConnection(), bean);
+    }
+    public long upsert(Connection conn, Object bean) {
+        return upsertMany(conn, Collections.singletonList(bean));
+    }
+
+    /**
+     * Inserts or updates a number of beans of the same type by primary key, using the dialect's upsert statement in
+     *  JDBC batches. The beans must have their primary keys set.<p>
+     *
+     * JDBC batch update counts do not tell inserted and updated rows apart, so only the total number of affected rows
+     *  is returned.
+     */
+    public long upsertMany(List<?> beans) {
+        return upsertMany(engine().defaultConnection(), beans);
+    }
+    public long upsertMany(Connection conn, List<?> beans) {
+        if (beans.isEmpty()) {
+            return 0;
+        }
+
+        final DatabaseDialect dialect = schemaRegistry.dialect();
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beans.get(0).getClass());
+        final String sql = dialect.upsertSql(beanMapping.tableName(), beanMapping.pkProperty().columnName(),
+                beanMapping.mappedProperties().map(p -> beanMapping.beanProperty(p).columnName()));
+
+        final List<List<?>> params = new ArrayList<>(beans.size());
+        for (Object bean : beans) {
+            if (beanMapping != mappingRegistry.getBeanMapping(conn, bean.getClass())) {
+                throw new IllegalArgumentException("upsert only for beans of the same type");
+            }
+            if (beanMapping.pkProperty().get(bean) == null) {
+                throw new IllegalArgumentException("upsert requires a primary key, but it is null for " + bean);
+            }
+            params.add(beanMapping.insertParams(bean, true));
+        }
+
+        long numRows = 0;
+        for (List<List<?>> chunk : chunks(params, BATCH_CHUNK_SIZE)) {
+            for (int updateCount : sqlEngine.executeBatch(conn, sql, chunk)) {
+                // drivers may report Statement.SUCCESS_NO_INFO instead of the actual count
+                numRows += updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount;
+            }
+        }
+        return numRows;
+    }
+
     public boolean update(Object bean) {
         return update(engine().defaultConnection(), bean);
     }
 
     private SqlSnippet updateSnippet(Connection conn, Object bean) {
         final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, bean.getClass());
-
-        final SqlSnippet updates = commaSeparated(
-                beanMapping.mappedPropertiesWithoutPk()
-                        .map(p -> sql(beanMapping.beanProperty(p).columnName() + "=?", beanMapping.beanProperty(p).get(bean)))
-        );
-
-        return concat(
-                sql("UPDATE " + beanMapping.tableName() + " SET"),
-                updates,
-                sql("WHERE " + beanMapping.pkProperty().columnName() + "=?", beanMapping.pkProperty().get(bean))
-        );
+        return sql(beanMapping.updateSql(), beanMapping.updateParams(bean));
     }
 
     public boolean update(Connection conn, Object bean) {
@@ -251,10 +573,19 @@ public class SqlMapper {
      * all beans must have the same type for JDBC batching to work
      */
     public List<Boolean> batchUpdate(Connection conn, List<Object> beans) {
-        final List<SqlSnippet> snippets = AMutableListWrapper
-                .wrap(beans)
-                .map(b -> updateSnippet(conn, b));
-        final int[] results = sqlEngine.executeBatch(conn, snippets);
+        if (beans.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beans.get(0).getClass());
+        final List<List<?>> params = new ArrayList<>(beans.size());
+        for (Object bean : beans) {
+            if (beanMapping != mappingRegistry.getBeanMapping(conn, bean.getClass())) {
+                throw new IllegalArgumentException("batch update only for beans of the same type");
+            }
+            params.add(beanMapping.updateParams(bean));
+        }
+        final int[] results = sqlEngine.executeBatch(conn, beanMapping.updateSql(), params);
         final List<Boolean> result = new ArrayList<>(results.length);
         for(int r: results) {
             result.add(r == 1);
@@ -262,6 +593,82 @@ public class SqlMapper {
         return result;
     }
 
+    /**
+     * Updates a bean, writing only the columns that changed with regard to its snapshot. Beans without a snapshot are
+     *  written completely. The snapshot is refreshed after a successful update.
+     *
+     * @return true if the row was updated, or if the bean is unchanged with regard to its snapshot. An unchanged bean
+     *          is not written at all, so true does <em>not</em> guarantee that its row still exists in the database.
+     */
+    public boolean update(BeanSnapshots snapshots, Object bean) {
+        return update(engine().defaultConnection(), snapshots, bean);
+    }
+    public boolean update(Connection conn, BeanSnapshots snapshots, Object bean) {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, bean.getClass());
+        final AList<String> properties = snapshots.changedProperties(beanMapping, bean).orElse(beanMapping.mappedPropertiesWithoutPk());
+        if (properties.isEmpty()) {
+            return true;
+        }
+
+        final boolean result = sqlEngine.executeUpdate(conn, sql(beanMapping.updateSql(properties), beanMapping.updateParams(bean, properties))) == 1;
+        if (result) {
+            snapshots.register(beanMapping, bean);
+        }
+        return result;
+    }
+
+    /**
+     * Updates a number of beans like {@link #update(BeanSnapshots, Object)}. Beans are grouped by the set of changed
+     *  columns, and each group is executed as JDBC batches with a single SQL text. All beans must have the same type.
+     */
+    public List<Boolean> batchUpdate(BeanSnapshots snapshots, List<Object> beans) {
+        return batchUpdate(engine().defaultConnection(), snapshots, beans);
+    }
+    public List<Boolean> batchUpdate(Connection conn, BeanSnapshots snapshots, List<Object> beans) {
+        if (beans.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beans.get(0).getClass());
+        final Boolean[] result = new Boolean[beans.size()];
+
+        final Map<AList<String>, List<Integer>> indicesByProperties = new LinkedHashMap<>();
+        for (int i = 0; i < beans.size(); i++) {
+            final Object bean = beans.get(i);
+            if (beanMapping != mappingRegistry.getBeanMapping(conn, bean.getClass())) {
+                throw new IllegalArgumentException("batch update only for beans of the same type");
+            }
+            final AList<String> properties = snapshots.changedProperties(beanMapping, bean).orElse(beanMapping.mappedPropertiesWithoutPk());
+            if (properties.isEmpty()) {
+                result[i] = true;
+            } else {
+                indicesByProperties.computeIfAbsent(properties, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<AList<String>, List<Integer>> group : indicesByProperties.entrySet()) {
+            final AList<String> properties = group.getKey();
+            final String sql = beanMapping.updateSql(properties);
+
+            for (List<Integer> indices : chunks(group.getValue(), BATCH_CHUNK_SIZE)) {
+                final List<List<?>> params = new ArrayList<>(indices.size());
+                for (int idx : indices) {
+                    params.add(beanMapping.updateParams(beans.get(idx), properties));
+                }
+
+                final int[] updateCounts = sqlEngine.executeBatch(conn, sql, params);
+                for (int i = 0; i < indices.size(); i++) {
+                    final boolean success = updateCounts[i] == 1 || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+                    result[indices.get(i)] = success;
+                    if (success) {
+                        snapshots.register(beanMapping, beans.get(indices.get(i)));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
     public boolean delete(Object bean) {
         return delete(engine().defaultConnection(), bean);
     }
@@ -270,7 +677,7 @@ public class SqlMapper {
         final BeanProperty pkProperty = beanMapping.pkProperty();
 
         return executeUnchecked(() ->
-                sqlEngine.executeUpdate(conn, "DELETE FROM " + beanMapping.tableName() + " WHERE " + pkProperty.columnName() + "=?", pkProperty.get(bean)) == 1
+                sqlEngine.executeUpdate(conn, beanMapping.deleteSql(), pkProperty.get(bean)) == 1
         );
     }
     public boolean delete(Class<?> beanType, Object pk) {
@@ -278,13 +685,176 @@ public class SqlMapper {
     }
     private boolean delete(Connection conn, Class<?> beanType, Object pk) {
         final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
-        final BeanProperty pkProperty = beanMapping.pkProperty();
 
         return executeUnchecked(() ->
-                sqlEngine.executeUpdate(conn, "DELETE FROM " + beanMapping.tableName() + " WHERE " + pkProperty.columnName() + "=?", pk) == 1
+                sqlEngine.executeUpdate(conn, beanMapping.deleteSql(), pk) == 1
         );
     }
 
+    /**
+     * Deletes the rows for a number of primary keys with {@code DELETE ... WHERE pk IN (...)} statements. Keys are
+     *  processed in chunks that stay within the dialect's bind parameter limit.
+     *
+     * @return the total number of deleted rows
+     */
+    public long deleteMany(Class<?> beanType, Collection<?> pks) {
+        return deleteMany(engine().defaultConnection(), beanType, pks);
+    }
+    public long deleteMany(Connection conn, Class<?> beanType, Collection<?> pks) {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+        final String pkColumn = beanMapping.pkProperty().columnName();
+        final int chunkSize = Math.max(1, Math.min(BATCH_CHUNK_SIZE, schemaRegistry.dialect().maxBindParameters()));
+
+        long result = 0;
+        for (List<Object> chunk : chunks(new ArrayList<Object>(pks), chunkSize)) {
+            result += sqlEngine.executeLargeUpdate(conn, concat(
+                    sql("DELETE FROM " + beanMapping.tableName() + " WHERE " + pkColumn + " IN ("),
+                    params(chunk),
+                    sql(")")
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Deletes the rows for a number of beans of the same type, see {@link #deleteMany(Class, Collection)}.
+     *
+     * @return the total number of deleted rows
+     */
+    public long deleteManyBeans(List<?> beans) {
+        return deleteManyBeans(engine().defaultConnection(), beans);
+    }
+    public long deleteManyBeans(Connection conn, List<?> beans) {
+        if (beans.isEmpty()) {
+            return 0;
+        }
+
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beans.get(0).getClass());
+        final List<Object> pks = new ArrayList<>(beans.size());
+        for (Object bean : beans) {
+            if (beanMapping != mappingRegistry.getBeanMapping(conn, bean.getClass())) {
+                throw new IllegalArgumentException("multi-delete only for beans of the same type");
+            }
+            pks.add(beanMapping.pkProperty().get(bean));
+        }
+        return deleteMany(conn, beans.get(0).getClass(), pks);
+    }
+
+    /**
+     * Makes a one-to-many relation's elements in the database match a given collection: elements that are not yet
+     *  stored for the owner are inserted, and stored elements whose primary key is not in the collection are deleted.
+     *  Elements that are stored already are left unchanged, use {@link #batchUpdate(List)} for changing them.<p>
+     *
+     * The current elements are determined with a single query, and inserts and deletes are executed as multi-row
+     *  statements. Every element's foreign key property is set to the owner's key before it is inserted.
+     *
+     * @return the elements as they are stored, i.e. with foreign keys and generated primary keys, in the order of {@code newElements}
+     */
+    public <T> SyncResult<T> syncOneToMany(Object owner, String propertyName, Collection<T> newElements) {
+        return syncOneToMany(engine().defaultConnection(), owner, propertyName, newElements);
+    }
+    public <T> SyncResult<T> syncOneToMany(Connection conn, Object owner, String propertyName, Collection<T> newElements) {
+        final OneToManySpec spec = mappingRegistry.resolveOneToMany(conn, owner.getClass(), propertyName);
+        final ForeignKeySpec fk = spec.foreignKeySpec();
+        final Object ownerKey = propertyForColumn(conn, owner.getClass(), fk.pkColumnName()).get(owner);
+
+        final BeanMapping elementMapping = mappingRegistry.getBeanMapping(conn, spec.elementClass());
+        final BeanProperty fkProperty = propertyForColumn(conn, spec.elementClass(), fk.fkColumnName());
+        final BeanProperty pkProperty = elementMapping.pkProperty();
+
+        final Set<Object> currentPks = new HashSet<>(sqlEngine
+                .rawQuery("SELECT " + pkProperty.columnName() + " FROM " + elementMapping.tableName() + " WHERE " + fk.fkColumnName() + "=?", ownerKey)
+                .list(conn)
+                .map(row -> row.get(pkProperty.propClass(), pkProperty.columnName())));
+
+        final List<T> withFks = new ArrayList<>(newElements.size());
+        final List<T> toInsert = new ArrayList<>();
+        final Set<Object> keptPks = new HashSet<>();
+        for (T el : newElements) {
+            //noinspection unchecked
+            final T withFk = (T) fkProperty.set(el, ownerKey);
+            withFks.add(withFk);
+
+            final Object pk = pkProperty.get(withFk);
+            if (pk != null && currentPks.contains(pk)) {
+                keptPks.add(pk);
+            } else {
+                toInsert.add(withFk);
+            }
+        }
+
+        final List<Object> toDelete = new ArrayList<>(currentPks);
+        toDelete.removeAll(keptPks);
+        deleteMany(conn, spec.elementClass(), toDelete);
+
+        final Iterator<T> inserted = insertMany(conn, toInsert).iterator();
+        final AVector.Builder<T> result = AVector.builder();
+        for (T el : withFks) {
+            final Object pk = pkProperty.get(el);
+            result.add(pk != null && keptPks.contains(pk) ? el : inserted.next());
+        }
+        return new SyncResult<>(result.build(), toInsert.size(), toDelete.size());
+    }
+
+    /**
+     * Makes the rows in a many-to-many relation's association table match a given collection of elements, which must
+     *  be stored already. The current associations are determined with a single query, and only missing associations
+     *  are inserted and surplus associations deleted, as JDBC batches.
+     */
+    public <T> SyncResult<T> syncManyToMany(Object owner, String propertyName, Collection<T> newElements) {
+        return syncManyToMany(engine().defaultConnection(), owner, propertyName, newElements);
+    }
+    public <T> SyncResult<T> syncManyToMany(Connection conn, Object owner, String propertyName, Collection<T> newElements) {
+        final ManyToManySpec spec = mappingRegistry.resolveManyToMany(conn, owner.getClass(), propertyName);
+        final Object ownerKey = propertyForColumn(conn, owner.getClass(), spec.ownerPk()).get(owner);
+        final BeanProperty elementKeyProperty = propertyForColumn(conn, spec.elementClass(), spec.collPk());
+
+        final Set<Object> currentKeys = new LinkedHashSet<>(sqlEngine
+                .rawQuery("SELECT " + spec.fkToCollection() + " FROM " + spec.manyManyTable() + " WHERE " + spec.fkToOwner() + "=?", ownerKey)
+                .list(conn)
+                .map(row -> row.get(elementKeyProperty.propClass(), spec.fkToCollection())));
+
+        final Set<Object> newKeys = new LinkedHashSet<>();
+        for (T el : newElements) {
+            final Object key = elementKeyProperty.get(el);
+            if (key == null) {
+                throw new IllegalArgumentException("many-to-many elements must be stored before they are associated: " + el);
+            }
+            newKeys.add(key);
+        }
+
+        final List<List<?>> deletes = new ArrayList<>();
+        for (Object key : currentKeys) {
+            if (!newKeys.contains(key)) {
+                deletes.add(Arrays.asList(ownerKey, key));
+            }
+        }
+        final List<List<?>> inserts = new ArrayList<>();
+        for (Object key : newKeys) {
+            if (!currentKeys.contains(key)) {
+                inserts.add(Arrays.asList(ownerKey, key));
+            }
+        }
+
+        executeBatchInChunks(conn, "DELETE FROM " + spec.manyManyTable() + " WHERE " + spec.fkToOwner() + "=? AND " + spec.fkToCollection() + "=?", deletes);
+        executeBatchInChunks(conn, "INSERT INTO " + spec.manyManyTable() + "(" + spec.fkToOwner() + ", " + spec.fkToCollection() + ") VALUES (?,?)", inserts);
+        return new SyncResult<>(AVector.from(newElements), inserts.size(), deletes.size());
+    }
+
+    private BeanProperty propertyForColumn(Connection conn, Class<?> beanType, String columnName) {
+        final BeanProperty result = mappingRegistry.getBeanMapping(conn, beanType).beanMetaData().getBeanPropertyForColumnName(columnName);
+        if (result == null) {
+            throw new IllegalArgumentException(beanType + " has no property for column " + columnName);
+        }
+        return result;
+    }
+
+    private void executeBatchInChunks(Connection conn, String sql, List<List<?>> params) {
+        for (List<List<?>> chunk : chunks(params, BATCH_CHUNK_SIZE)) {
+            sqlEngine.executeBatch(conn, sql, chunk);
+        }
+    }
+
     public boolean patch(Class<?> beanType, Object pk, Map<String, Object> newValues) {
         return patch(engine().defaultConnection(), beanType, pk, newValues);
     }
@@ -323,4 +893,118 @@ public class SqlMapper {
                 sqlEngine.executeUpdate(conn, builder.build()) == 1
         );
     }
+
+    /**
+     * Applies a number of patches (see {@link #patch(Class, Object, Map)}) to beans of a given type. Patches are grouped
+     *  by the set of changed columns, and each group is executed as JDBC batches with a single SQL text.
+     *
+     * @return a success flag per primary key, in the iteration order of {@code patches}
+     */
+    public Map<Object, Boolean> patchMany(Class<?> beanType, Map<?, ? extends Map<String, Object>> patches) {
+        return patchMany(engine().defaultConnection(), beanType, patches);
+    }
+    public Map<Object, Boolean> patchMany(Connection conn, Class<?> beanType, Map<?, ? extends Map<String, Object>> patches) {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+        final Map<Object, Boolean> result = new LinkedHashMap<>();
+
+        // group by changed properties, listing them in mapping order to make the grouping independent of map ordering
+        final Map<AList<String>, List<Object>> pksByProperties = new LinkedHashMap<>();
+        for (Map.Entry<?, ? extends Map<String, Object>> e : patches.entrySet()) {
+            final AList<String> properties = beanMapping.mappedProperties().filter(e.getValue()::containsKey);
+            result.put(e.getKey(), true);
+            if (properties.nonEmpty()) {
+                pksByProperties.computeIfAbsent(properties, k -> new ArrayList<>()).add(e.getKey());
+            }
+        }
+
+        for (Map.Entry<AList<String>, List<Object>> group : pksByProperties.entrySet()) {
+            final AList<String> properties = group.getKey();
+            final String sql = beanMapping.updateSql(properties);
+
+            for (List<Object> pks : chunks(group.getValue(), BATCH_CHUNK_SIZE)) {
+                final List<List<?>> params = new ArrayList<>(pks.size());
+                for (Object pk : pks) {
+                    final Map<String, Object> newValues = patches.get(pk);
+                    final List<Object> rowParams = new ArrayList<>(properties.map(newValues::get));
+                    rowParams.add(pk);
+                    params.add(rowParams);
+                }
+
+                final int[] updateCounts = sqlEngine.executeBatch(conn, sql, params);
+                for (int i = 0; i < pks.size(); i++) {
+                    result.put(pks.get(i), updateCounts[i] == 1 || updateCounts[i] == Statement.SUCCESS_NO_INFO);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates all rows of a bean type's table that match a condition with a single {@code UPDATE ... SET ... WHERE ...}
+     *  statement, without loading them. New values are given per property name, and they must refer to mapped
+     *  properties other than the primary key.
+     *
+     * @param condition the SQL condition, without the {@code WHERE} keyword
+     * @return the number of updated rows
+     */
+    public long updateWhere(Class<?> beanType, Map<String, ?> newValues, SqlSnippet condition) {
+        return updateWhere(engine().defaultConnection(), beanType, newValues, condition);
+    }
+    public long updateWhere(Connection conn, Class<?> beanType, Map<String, ?> newValues, SqlSnippet condition) {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+        if (newValues.isEmpty()) {
+            throw new IllegalArgumentException("no new values for " + beanType);
+        }
+
+        final List<SqlSnippet> assignments = new ArrayList<>(newValues.size());
+        for (Map.Entry<String, ?> e : newValues.entrySet()) {
+            if (!beanMapping.mappedPropertiesWithoutPk().contains(e.getKey())) {
+                throw new IllegalArgumentException(beanType + " has no updatable mapped property " + e.getKey());
+            }
+            assignments.add(sql(beanMapping.beanProperty(e.getKey()).columnName() + "=?", e.getValue()));
+        }
+
+        return sqlEngine.executeLargeUpdate(conn, concat(
+                sql("UPDATE " + beanMapping.tableName() + " SET"),
+                commaSeparated(assignments),
+                sql("WHERE"),
+                condition
+        ));
+    }
+
+    /**
+     * Deletes all rows of a bean type's table that match a condition with a single {@code DELETE ... WHERE ...}
+     *  statement, without loading them.
+     *
+     * @param condition the SQL condition, without the {@code WHERE} keyword
+     * @return the number of deleted rows
+     */
+    public long deleteWhere(Class<?> beanType, SqlSnippet condition) {
+        return deleteWhere(engine().defaultConnection(), beanType, condition);
+    }
+    public long deleteWhere(Connection conn, Class<?> beanType, SqlSnippet condition) {
+        final BeanMapping beanMapping = mappingRegistry.getBeanMapping(conn, beanType);
+        return sqlEngine.executeLargeUpdate(conn, concat(
+                sql("DELETE FROM " + beanMapping.tableName() + " WHERE"),
+                condition
+        ));
+    }
+
+    /**
+     * Creates a {@link ChunkedUpdate} for executing an UPDATE or DELETE statement on a large table in chunks of primary
+     *  key ranges, see there for details.
+     *
+     * @param statement a function from the SQL condition for a chunk's key range to the complete statement
+     */
+    public ChunkedUpdate chunkedUpdate(String tableName, Function<SqlSnippet, SqlSnippet> statement) {
+        return new ChunkedUpdate(sqlEngine, schemaRegistry, tableName, statement);
+    }
+
+    /**
+     * @return a bulk loader that inserts beans in parallel with {@link #insertMany(Connection, List)} on connections
+     *          from {@code connectionSupplier}, see {@link BulkLoader}
+     */
+    public <T> BulkLoader<T> bulkLoader(Supplier<Connection> connectionSupplier) {
+        return new BulkLoader<>(connectionSupplier, this::insertMany);
+    }
 }
@@ -0,0 +1,56 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import java.util.Objects;
+
+import com.ajjpj.acollections.AList;
+
+/**
+ * The outcome of synchronizing a relation's elements with the database, see
+ *  {@link SqlMapper#syncOneToMany(Object, String, java.util.Collection)} and
+ *  {@link SqlMapper#syncManyToMany(Object, String, java.util.Collection)}: the elements as they are stored (i.e. with
+ *  generated primary keys and foreign keys), and the numbers of inserted and deleted rows.
+ */
+public class SyncResult<T> {
+    private final AList<T> elements;
+    private final int numInserted;
+    private final int numDeleted;
+
+    public SyncResult (AList<T> elements, int numInserted, int numDeleted) {
+        this.elements = elements;
+        this.numInserted = numInserted;
+        this.numDeleted = numDeleted;
+    }
+
+    public AList<T> elements () {
+        return elements;
+    }
+
+    public int numInserted () {
+        return numInserted;
+    }
+
+    public int numDeleted () {
+        return numDeleted;
+    }
+
+    @Override public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SyncResult<?> that = (SyncResult<?>) o;
+        return numInserted == that.numInserted &&
+                numDeleted == that.numDeleted &&
+                Objects.equals(elements, that.elements);
+    }
+
+    @Override public int hashCode () {
+        return Objects.hash(elements, numInserted, numDeleted);
+    }
+
+    @Override public String toString () {
+        return "SyncResult{" +
+                "elements=" + elements +
+                ", numInserted=" + numInserted +
+                ", numDeleted=" + numDeleted +
+                '}';
+    }
+}
@@ -0,0 +1,277 @@
+package com.ajjpj.asqlmapper.mapper;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.util.AUnchecker;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.javabeans.BeanProperty;
+
+/**
+ * A WriteBehindBuffer collects inserts and updates from any number of threads and writes them to the database in
+ *  batches, using {@link SqlMapper#insertMany(Connection, List)} and {@link SqlMapper#batchUpdate(Connection, List)}
+ *  per bean type. Repeated updates of a bean (i.e. same type and primary key) in a flush are merged, and only the
+ *  most recent version is written.<p>
+ *
+ * Buffered writes are flushed when their number reaches a threshold, when the oldest of them has waited for a given
+ *  maximum delay, on an explicit call to {@link #flush()}, and when the buffer is closed. Every write returns a future
+ *  that completes when the write is committed, so callers can wait for durability if they need it. If a flush fails,
+ *  it is rolled back and all its writes' futures complete exceptionally.<p>
+ *
+ * Flushes are performed one at a time, either on the thread calling {@link #flush()} or on a background thread, with a
+ *  connection from the connection supplier. Each flush is committed unless the connection is in auto-commit mode. The
+ *  connection supplier must return a new connection (typically from a pool) for every call, and each flush closes its
+ *  connection when it is done. Buffering writes does not use a connection, so it never blocks on the database.
+ */
+public class WriteBehindBuffer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private final SqlMapper mapper;
+    private final Supplier<Connection> connectionSupplier;
+    private final int maxBufferedWrites;
+    private final Duration maxDelay;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread result = new Thread(r, "write-behind-flusher");
+        result.setDaemon(true);
+        return result;
+    });
+    private final Object flushLock = new Object();
+
+    // guarded by 'this'
+    private Map<Class<?>, PendingWrites> pending = new LinkedHashMap<>();
+    private int numPending = 0;
+    private boolean isFlushScheduled = false;
+    private boolean isClosed = false;
+
+    /**
+     * @param maxBufferedWrites the number of buffered writes that triggers a flush
+     * @param maxDelay          the maximum time a write is buffered before it is flushed
+     */
+    public WriteBehindBuffer (SqlMapper mapper, Supplier<Connection> connectionSupplier, int maxBufferedWrites, Duration maxDelay) {
+        if (maxBufferedWrites < 1) {
+            throw new IllegalArgumentException("max buffered writes must be positive");
+        }
+        this.mapper = mapper;
+        this.connectionSupplier = connectionSupplier;
+        this.maxBufferedWrites = maxBufferedWrites;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @return a future for the inserted bean, i.e. with its generated primary key
+     */
+    public <T> CompletableFuture<T> insert (T bean) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(bean.getClass(), p -> {
+            p.inserts.add(bean);
+            //noinspection unchecked
+            p.insertFutures.add((CompletableFuture<Object>) result);
+        });
+        return result;
+    }
+
+    /**
+     * @return a future for the update's success, see {@link SqlMapper#update(Object)}. If the update is merged with
+     *          other updates of the same bean, all their futures complete with the outcome of the merged update.
+     */
+    public CompletableFuture<Boolean> update (Object bean) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        enqueue(bean.getClass(), p -> {
+            p.updates.add(bean);
+            p.updateFutures.add(result);
+        });
+        return result;
+    }
+
+    /**
+     * @return the number of buffered writes. Updates are merged when they are flushed, so every update counts here.
+     */
+    public synchronized int numPending () {
+        return numPending;
+    }
+
+    private void enqueue (Class<?> beanType, Consumer<PendingWrites> addWrite) {
+        final boolean flushNow;
+        synchronized (this) {
+            if (isClosed) {
+                throw new IllegalStateException("write-behind buffer is closed");
+            }
+            addWrite.accept(pending.computeIfAbsent(beanType, PendingWrites::new));
+            numPending += 1;
+
+            flushNow = numPending >= maxBufferedWrites;
+            if (!flushNow && !isFlushScheduled) {
+                isFlushScheduled = true;
+                flusher.schedule(this::flushInBackground, maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            flusher.execute(this::flushInBackground);
+        }
+    }
+
+    private void flushInBackground () {
+        try {
+            flush();
+        }
+        catch (Exception exc) {
+            log.warn("write-behind flush failed", exc);
+        }
+    }
+
+    /**
+     * writes and commits all buffered writes, completing their futures. The connection is closed afterwards, whether
+     *  the flush succeeded or not.
+     */
+    public void flush () {
+        synchronized (flushLock) {
+            final Map<Class<?>, PendingWrites> toFlush;
+            synchronized (this) {
+                toFlush = pending;
+                pending = new LinkedHashMap<>();
+                numPending = 0;
+                isFlushScheduled = false;
+            }
+            if (toFlush.isEmpty()) {
+                return;
+            }
+
+            final List<Runnable> completions = new ArrayList<>();
+            Connection conn = null;
+            try {
+                conn = connectionSupplier.get();
+                for (PendingWrites p : toFlush.values()) {
+                    p.execute(mapper, conn, completions);
+                }
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            }
+            catch (Exception exc) {
+                if (conn != null) {
+                    rollbackQuietly(conn);
+                }
+                for (PendingWrites p : toFlush.values()) {
+                    p.fail(exc);
+                }
+                AUnchecker.throwUnchecked(exc);
+            }
+            finally {
+                SqlHelper.closeQuietly(conn);
+            }
+            completions.forEach(Runnable::run);
+        }
+    }
+
+    private static void rollbackQuietly (Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+            }
+        }
+        catch (Exception exc) {
+            log.warn("rollback failed", exc);
+        }
+    }
+
+    /**
+     * flushes all buffered writes and stops background flushing. Writes are rejected after a call to this method.
+     */
+    @Override public void close () {
+        synchronized (this) {
+            isClosed = true;
+        }
+        try {
+            flush();
+        }
+        finally {
+            flusher.shutdown();
+        }
+    }
+
+    private static class PendingWrites {
+        final Class<?> beanType;
+        final List<Object> inserts = new ArrayList<>();
+        final List<CompletableFuture<Object>> insertFutures = new ArrayList<>();
+        final List<Object> updates = new ArrayList<>();
+        final List<CompletableFuture<Boolean>> updateFutures = new ArrayList<>();
+
+        PendingWrites (Class<?> beanType) {
+            this.beanType = beanType;
+        }
+
+        void execute (SqlMapper mapper, Connection conn, List<Runnable> completions) {
+            if (!inserts.isEmpty()) {
+                final AList<Object> inserted = mapper.insertMany(conn, inserts);
+                for (int i = 0; i < inserted.size(); i++) {
+                    final CompletableFuture<Object> f = insertFutures.get(i);
+                    final Object bean = inserted.get(i);
+                    completions.add(() -> f.complete(bean));
+                }
+            }
+
+            if (!updates.isEmpty()) {
+                final List<PendingUpdate> pendingUpdates = mergeUpdates(mapper.getBeanMappingRegistry().getBeanMapping(conn, beanType).pkProperty());
+                final List<Object> beans = new ArrayList<>(pendingUpdates.size());
+                for (PendingUpdate u : pendingUpdates) {
+                    beans.add(u.bean);
+                }
+                final List<Boolean> updated = mapper.batchUpdate(conn, beans);
+                for (int i = 0; i < pendingUpdates.size(); i++) {
+                    final List<CompletableFuture<Boolean>> futures = pendingUpdates.get(i).futures;
+                    final Boolean success = updated.get(i);
+                    completions.add(() -> futures.forEach(f -> f.complete(success)));
+                }
+            }
+        }
+
+        /**
+         * merges updates of the same primary key, keeping the most recent version at the position of the first one
+         */
+        private List<PendingUpdate> mergeUpdates (BeanProperty pkProperty) {
+            final Map<Object, PendingUpdate> byPk = new LinkedHashMap<>();
+            for (int i = 0; i < updates.size(); i++) {
+                final Object bean = updates.get(i);
+                final CompletableFuture<Boolean> future = updateFutures.get(i);
+                final PendingUpdate existing = byPk.get(pkProperty.get(bean));
+                if (existing != null) {
+                    existing.bean = bean;
+                    existing.futures.add(future);
+                }
+                else {
+                    byPk.put(pkProperty.get(bean), new PendingUpdate(bean, future));
+                }
+            }
+            return new ArrayList<>(byPk.values());
+        }
+
+        void fail (Throwable th) {
+            insertFutures.forEach(f -> f.completeExceptionally(th));
+            updateFutures.forEach(f -> f.completeExceptionally(th));
+        }
+    }
+
+    private static class PendingUpdate {
+        Object bean;
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        PendingUpdate (Object bean, CompletableFuture<Boolean> future) {
+            this.bean = bean;
+            this.futures.add(future);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.ajjpj.asqlmapper.mapper.beans;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import com.ajjpj.acollections.ACollection;
 import com.ajjpj.acollections.AList;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaData;
@@ -17,6 +21,16 @@ public class BeanMapping {
 
     private BeanProperty pkProperty;
 
+    // SQL and property accessors for CRUD operations, computed once so that write paths only need to extract values
+    private final BeanProperty[] propertiesWithPk;
+    private final BeanProperty[] propertiesWithoutPk;
+    private final String insertSqlWithPk;
+    private final String insertSqlWithoutPk;
+    private final String insertValuesWithPk;
+    private final String insertValuesWithoutPk;
+    private final String updateSql;
+    private final String deleteSql;
+
     public BeanMapping(BeanMetaData beanMetaData, TableMetaData tableMetaData, PkStrategy pkStrategy) {
         this.beanMetaData = beanMetaData;
         this.tableMetaData = tableMetaData;
@@ -41,6 +55,16 @@ public class BeanMapping {
         }
 
         this.mappedPropertiesWithoutPk = mappedProperties.filterNot(p -> p.equals(pkProperty.name()));
+
+        this.propertiesWithPk = mappedProperties.map(this::beanProperty).toArray(new BeanProperty[0]);
+        this.propertiesWithoutPk = mappedPropertiesWithoutPk.map(this::beanProperty).toArray(new BeanProperty[0]);
+
+        this.insertValuesWithPk = "(" + mappedProperties.map(p -> "?").mkString(",") + ")";
+        this.insertValuesWithoutPk = "(" + mappedPropertiesWithoutPk.map(p -> "?").mkString(",") + ")";
+        this.insertSqlWithPk = "INSERT INTO " + tableName() + "(" + mappedProperties.map(p -> beanProperty(p).columnName()).mkString(",") + ") VALUES " + insertValuesWithPk;
+        this.insertSqlWithoutPk = "INSERT INTO " + tableName() + "(" + mappedPropertiesWithoutPk.map(p -> beanProperty(p).columnName()).mkString(",") + ") VALUES " + insertValuesWithoutPk;
+        this.updateSql = buildUpdateSql(mappedPropertiesWithoutPk);
+        this.deleteSql = "DELETE FROM " + tableName() + " WHERE " + pkProperty.columnName() + "=?";
     }
 
     public String tableName() {
@@ -73,4 +97,83 @@ public class BeanMapping {
     public BeanProperty pkProperty() {
         return pkProperty;
     }
+
+    /**
+     * @return an INSERT statement for a single row, with one bind parameter per mapped property in the order of
+     *          {@link #mappedProperties()} or {@link #mappedPropertiesWithoutPk()}
+     */
+    public String insertSql(boolean withPk) {
+        return withPk ? insertSqlWithPk : insertSqlWithoutPk;
+    }
+
+    /**
+     * @return the parenthesized placeholders for a single row of a multi-row INSERT statement
+     */
+    public String insertValuesSql(boolean withPk) {
+        return withPk ? insertValuesWithPk : insertValuesWithoutPk;
+    }
+
+    /**
+     * @return the bind parameters for {@link #insertSql(boolean)}
+     */
+    public List<Object> insertParams(Object bean, boolean withPk) {
+        return values(bean, withPk ? propertiesWithPk : propertiesWithoutPk, 0);
+    }
+
+    /**
+     * @return an UPDATE statement setting all mapped properties except the primary key, identifying the row by its
+     *          primary key
+     */
+    public String updateSql() {
+        return updateSql;
+    }
+
+    /**
+     * @return the bind parameters for {@link #updateSql()}
+     */
+    public List<Object> updateParams(Object bean) {
+        final List<Object> result = values(bean, propertiesWithoutPk, 1);
+        result.set(propertiesWithoutPk.length, pkProperty.get(bean));
+        return result;
+    }
+
+    /**
+     * @return an UPDATE statement setting a subset of the mapped properties in the given order, identifying the row by
+     *          its primary key
+     */
+    public String updateSql(AList<String> properties) {
+        return properties.equals(mappedPropertiesWithoutPk) ? updateSql : buildUpdateSql(properties);
+    }
+
+    /**
+     * @return the bind parameters for {@link #updateSql(AList)}
+     */
+    public List<Object> updateParams(Object bean, AList<String> properties) {
+        final List<Object> result = new ArrayList<>(properties.size() + 1);
+        for (String p : properties) {
+            result.add(beanProperty(p).get(bean));
+        }
+        result.add(pkProperty.get(bean));
+        return result;
+    }
+
+    private String buildUpdateSql(AList<String> properties) {
+        return "UPDATE " + tableName() + " SET " + properties.map(p -> beanProperty(p).columnName() + "=?").mkString(",") +
+                " WHERE " + pkProperty.columnName() + "=?";
+    }
+
+    /**
+     * @return a DELETE statement for a single row, with the primary key as its only bind parameter
+     */
+    public String deleteSql() {
+        return deleteSql;
+    }
+
+    private static List<Object> values(Object bean, BeanProperty[] properties, int numAdditional) {
+        final Object[] result = new Object[properties.length + numAdditional];
+        for (int i = 0; i < properties.length; i++) {
+            result[i] = properties[i].get(bean);
+        }
+        return Arrays.asList(result);
+    }
 }
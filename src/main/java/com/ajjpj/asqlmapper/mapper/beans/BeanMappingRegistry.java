@@ -6,13 +6,23 @@ import com.ajjpj.asqlmapper.core.impl.CanHandle;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaDataRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ManyToManySpec;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 
 public interface BeanMappingRegistry extends CanHandle {
     BeanMetaDataRegistry metaDataRegistry();
     BeanMapping getBeanMapping(Connection conn, Class<?> beanType);
 
     OneToManySpec resolveOneToMany(Connection conn, Class<?> ownerClass, String propertyName);
+    ForeignKeySpec resolveOneToManyForeignKey(Connection conn, Class<?> ownerClass, String propertyName);
     ManyToManySpec resolveManyToMany(Connection conn, Class<?> ownerClass, String propertyName);
     ToOneSpec resolveToOne(Connection conn, Class owningClass, String propertyName);
+
+    /**
+     * @return the compiled fetch plan for a relation spec. Fetch plans are immutable and typically cached.
+     */
+    RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, OneToManySpec spec);
+    RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, ManyToManySpec spec);
+    RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, ToOneSpec spec);
 }
@@ -4,12 +4,15 @@ import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
 
 import java.sql.Connection;
 import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.ajjpj.acollections.AMap;
 import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaData;
 import com.ajjpj.asqlmapper.javabeans.BeanMetaDataRegistry;
 import com.ajjpj.asqlmapper.javabeans.BeanProperty;
@@ -18,6 +21,7 @@ import com.ajjpj.asqlmapper.mapper.beans.primarykey.PkStrategyDecider;
 import com.ajjpj.asqlmapper.mapper.beans.relations.*;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
 import com.ajjpj.asqlmapper.mapper.schema.ColumnMetaData;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 import com.ajjpj.asqlmapper.mapper.schema.TableMetaData;
 
@@ -33,8 +37,10 @@ public class BeanMappingRegistryImpl implements BeanMappingRegistry {
 
     private final Map<Class<?>, BeanMapping> cache = new ConcurrentHashMap<>();
     private final Map<RelMapKey, OneToManySpec> oneToManyCache = new ConcurrentHashMap<>();
+    private final Map<RelMapKey, ForeignKeySpec> oneToManyForeignKeyCache = new ConcurrentHashMap<>();
     private final Map<RelMapKey, ManyToManySpec> manyToManyCache = new ConcurrentHashMap<>();
     private final Map<RelMapKey, ToOneSpec> toOneCache = new ConcurrentHashMap<>();
+    private final Map<List<Object>, RelationFetchPlan> fetchPlanCache = new ConcurrentHashMap<>();
 
     public BeanMappingRegistryImpl(SchemaRegistry schemaRegistry, TableNameExtractor tableNameExtractor, PkStrategyDecider pkStrategyDecider,
                                    BeanMetaDataRegistry metaDataRegistry, OneToManyResolver oneToManyResolver,
@@ -74,7 +80,7 @@ public class BeanMappingRegistryImpl implements BeanMappingRegistry {
                             .getTableMetaData(conn, tableName)
                             .orElseThrow(() -> new IllegalArgumentException(beanType + " is associated with table " + tableName + " which does not exist"));
 
-                    final PkStrategy pkStrategy = pkStrategyDecider.pkStrategy(conn, beanType, tableMetaData);
+                    final PkStrategy pkStrategy = pkStrategyDecider.pkStrategy(conn, beanType, tableMetaData, schemaRegistry.dialect());
 
                     final AMap<BeanProperty, ColumnMetaData> mappedProperties = beanMetaData
                             .beanProperties()
@@ -101,6 +107,14 @@ public class BeanMappingRegistryImpl implements BeanMappingRegistry {
         });
     }
 
+    @Override
+    public ForeignKeySpec resolveOneToManyForeignKey(Connection conn, Class<?> ownerClass, String propertyName) {
+        return oneToManyForeignKeyCache.computeIfAbsent(new RelMapKey(ownerClass, propertyName), k -> {
+            final BeanMapping ownerMapping = getBeanMapping(conn, ownerClass);
+            return oneToManyResolver.resolveForeignKey(conn, ownerMapping, propertyName, tableNameExtractor, schemaRegistry);
+        });
+    }
+
     @Override
     public ManyToManySpec resolveManyToMany(Connection conn, Class<?> ownerClass, String propertyName) {
         return manyToManyCache.computeIfAbsent(new RelMapKey(ownerClass, propertyName), k -> {
@@ -116,6 +130,36 @@ public class BeanMappingRegistryImpl implements BeanMappingRegistry {
             return toOneResolver.resolve(conn, ownerMapping, propertyName, tableNameExtractor, schemaRegistry);
         });
     }
+    @Override
+    public RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, OneToManySpec spec) {
+        // the plan is cached per structure, so parameter values in the condition or the limit do not create new plans
+        final List<Object> key = Arrays.asList(OneToManySpec.class, ownerClass, propertyName, spec.foreignKeySpec(), spec.elementClass(),
+                spec.collectionBuildStrategy(), spec.keyType(), spec.orderBy(), spec.condition().map(SqlSnippet::getSql), spec.limitPerParent().isDefined());
+        return fetchPlanCache.computeIfAbsent(key, k -> RelationFetchPlan.forOneToMany(spec, schemaRegistry.dialect()))
+                .bind(spec.condition(), spec.limitPerParent());
+    }
+
+    @Override
+    public RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, ManyToManySpec spec) {
+        final List<Object> key = Arrays.asList(ManyToManySpec.class, ownerClass, propertyName, spec.manyManyTable(), spec.fkToOwner(), spec.fkToCollection(),
+                spec.ownerPk(), spec.collTable(), spec.collPk(), spec.elementClass(), spec.collectionBuildStrategy(), spec.keyType(), spec.orderBy(),
+                spec.condition().map(SqlSnippet::getSql), spec.limitPerParent().isDefined());
+        return fetchPlanCache.computeIfAbsent(key, k -> RelationFetchPlan.forManyToMany(spec, schemaRegistry.dialect()))
+                .bind(spec.condition(), spec.limitPerParent());
+    }
+
+    @Override
+    public RelationFetchPlan fetchPlan(Class<?> ownerClass, String propertyName, ToOneSpec spec) {
+        return fetchPlanCache.computeIfAbsent(Arrays.asList(ToOneSpec.class, ownerClass, propertyName, spec), k -> RelationFetchPlan.forToOne(spec));
+    }
+
+    /**
+     * @return the number of cached relation fetch plans
+     */
+    public int numCachedFetchPlans() {
+        return fetchPlanCache.size();
+    }
+
     private static class RelMapKey {
         final Class<?> ownerClass;
         final String propertyName;
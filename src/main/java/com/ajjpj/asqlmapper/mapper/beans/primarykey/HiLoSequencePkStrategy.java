@@ -0,0 +1,120 @@
+package com.ajjpj.asqlmapper.mapper.beans.primarykey;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
+
+/**
+ * Allocates primary keys from a database sequence in blocks, so that only one in {@code blockSize} new primary keys
+ *  requires a round trip to the database. Keys within a block are handed out from memory without locking.<p>
+ *
+ * Every value fetched from the sequence reserves the block of keys from that value up to (but excluding) the value
+ *  plus {@code blockSize}, so the sequence must be declared with {@code INCREMENT BY blockSize}. This keeps keys
+ *  unique even if other code draws single values from the same sequence, e.g. through a column default.<p>
+ *
+ * Keys of unused blocks are lost when the application terminates, so keys have gaps and are only roughly ordered by
+ *  insertion time across application instances.<p>
+ *
+ * Beans that have a primary key already (neither null nor zero) keep it when they are inserted, e.g. in migrations or
+ *  imports of existing data, and no key is allocated for them.
+ */
+public class HiLoSequencePkStrategy implements PkStrategy {
+    private static final Block EXHAUSTED = new Block(0, 0);
+
+    private final String nextValueSql;
+    private final int blockSize;
+    private final Class<?> pkType;
+
+    private final AtomicReference<Block> currentBlock = new AtomicReference<>(EXHAUSTED);
+
+    /**
+     * @param pkType the Java type of generated keys, either {@code Long}, {@code Integer} or {@code BigDecimal}
+     */
+    public HiLoSequencePkStrategy (DatabaseDialect dialect, String sequenceName, int blockSize, Class<?> pkType) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive");
+        }
+        this.nextValueSql = dialect.nextSequenceValueSql(sequenceName);
+        this.blockSize = blockSize;
+        this.pkType = pkType;
+    }
+
+    public int blockSize () {
+        return blockSize;
+    }
+
+    @Override public boolean keepsExplicitPk () {
+        return true;
+    }
+
+    @Override public AOption<Object> newPrimaryKey (Connection conn) {
+        while (true) {
+            final Block block = currentBlock.get();
+            final long key = block.next.getAndIncrement();
+            if (key < block.end) {
+                return AOption.some(toPkType(key));
+            }
+
+            // only threads finding the block exhausted synchronize, and only one of them fetches the next block
+            synchronized (this) {
+                if (currentBlock.get() == block) {
+                    final long start = fetchNextValue(conn);
+                    currentBlock.set(new Block(start, start + blockSize));
+                }
+            }
+        }
+    }
+
+    private long fetchNextValue (Connection conn) {
+        return executeUnchecked(() -> {
+            final PreparedStatement ps = conn.prepareStatement(nextValueSql);
+            try {
+                final ResultSet rs = ps.executeQuery();
+                if (!rs.next()) {
+                    throw new IllegalStateException("no result for " + nextValueSql);
+                }
+                return rs.getLong(1);
+            }
+            finally {
+                SqlHelper.closeQuietly(ps);
+            }
+        });
+    }
+
+    private Object toPkType (long key) {
+        if (pkType == Integer.class || pkType == int.class) {
+            return Math.toIntExact(key);
+        }
+        if (pkType == BigDecimal.class) {
+            return BigDecimal.valueOf(key);
+        }
+        return key;
+    }
+
+    @Override public String toString () {
+        return "HiLoSequencePkStrategy{" +
+                "nextValueSql='" + nextValueSql + '\'' +
+                ", blockSize=" + blockSize +
+                ", pkType=" + pkType +
+                '}';
+    }
+
+    private static class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block (long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ajjpj.asqlmapper.mapper.beans.primarykey;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.impl.SqlHelper;
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
+import com.ajjpj.asqlmapper.mapper.schema.ColumnMetaData;
+import com.ajjpj.asqlmapper.mapper.schema.TableMetaData;
+
+/**
+ * Allocates keys with a {@link HiLoSequencePkStrategy} for tables with a single, non-auto-increment primary key column
+ *  whose default value is drawn from a sequence, and delegates to another decider for all other tables. This is
+ *  opt-in (see {@link com.ajjpj.asqlmapper.SqlMapperBuilder#withHiLoSequences(int)}) because it changes how keys
+ *  for such tables are assigned.<p>
+ *
+ * The block size is configured, and every sequence used this way must be declared with {@code INCREMENT BY} the
+ *  block size; otherwise the blocks could overlap with values other writers draw from the sequence, so the mapping
+ *  fails with an {@link IllegalArgumentException}.
+ */
+public class HiLoSequencePkStrategyDecider implements PkStrategyDecider {
+    private final PkStrategyDecider fallback;
+    private final int blockSize;
+
+    public HiLoSequencePkStrategyDecider (PkStrategyDecider fallback, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive");
+        }
+        this.fallback = fallback;
+        this.blockSize = blockSize;
+    }
+
+    @Override public PkStrategy pkStrategy (Connection conn, Class<?> beanType, TableMetaData tableMetaData) {
+        return fallback.pkStrategy(conn, beanType, tableMetaData);
+    }
+
+    @Override public PkStrategy pkStrategy (Connection conn, Class<?> beanType, TableMetaData tableMetaData, DatabaseDialect dialect) {
+        if (tableMetaData.pkColumns().size() == 1 && !tableMetaData.pkColumns().head().isAutoIncrement()) {
+            final ColumnMetaData pkColumn = tableMetaData.pkColumns().head();
+            final AOption<String> sequenceName = pkColumn.defaultValue().flatMap(dialect::sequenceNameFromColumnDefault);
+            if (sequenceName.isDefined()) {
+                final long increment = sequenceIncrement(conn, dialect, sequenceName.get());
+                if (increment != blockSize) {
+                    throw new IllegalArgumentException("sequence " + sequenceName.get() + " for " + beanType + " has increment " + increment +
+                            ", but hi/lo key allocation requires it to be the block size " + blockSize);
+                }
+                return new HiLoSequencePkStrategy(dialect, sequenceName.get(), blockSize, pkColumn.colClass().orElse(Long.class));
+            }
+        }
+        return fallback.pkStrategy(conn, beanType, tableMetaData, dialect);
+    }
+
+    private static long sequenceIncrement (Connection conn, DatabaseDialect dialect, String sequenceName) {
+        final String unqualifiedName = sequenceName.substring(sequenceName.lastIndexOf('.') + 1).replaceAll("[\"\\[\\]]", "");
+        return executeUnchecked(() -> {
+            final PreparedStatement ps = conn.prepareStatement(dialect.sequenceIncrementSql());
+            try {
+                ps.setString(1, unqualifiedName);
+                final ResultSet rs = ps.executeQuery();
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("sequence " + sequenceName + " does not exist");
+                }
+                return rs.getLong(1);
+            }
+            finally {
+                SqlHelper.closeQuietly(ps);
+            }
+        });
+    }
+}
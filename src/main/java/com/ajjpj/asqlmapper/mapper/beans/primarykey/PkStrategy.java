@@ -13,6 +13,15 @@ public interface PkStrategy {
         return false;
     }
 
+    /**
+     * @return true if a bean's primary key is kept on insert when it is set already, i.e. neither null nor zero, so
+     *  that {@link #newPrimaryKey(Connection)} is called only for beans without a key. By default, every inserted bean
+     *  gets a new key.
+     */
+    default boolean keepsExplicitPk() {
+        return false;
+    }
+
     /**
      * @return empty() for 'manually set'
      */
@@ -1,9 +1,18 @@
 package com.ajjpj.asqlmapper.mapper.beans.primarykey;
 
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.schema.TableMetaData;
 
 import java.sql.Connection;
 
 public interface PkStrategyDecider {
     PkStrategy pkStrategy(Connection conn, Class<?> beanType, TableMetaData tableMetaData);
+
+    /**
+     * This is the method that is actually called by the mapper. Implementations can override it to take
+     *  dialect-specific features (e.g. sequences) into account.
+     */
+    default PkStrategy pkStrategy(Connection conn, Class<?> beanType, TableMetaData tableMetaData, DatabaseDialect dialect) {
+        return pkStrategy(conn, beanType, tableMetaData);
+    }
 }
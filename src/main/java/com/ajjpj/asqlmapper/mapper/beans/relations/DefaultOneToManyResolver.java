@@ -16,10 +16,7 @@ import com.ajjpj.asqlmapper.mapper.util.BeanReflectionHelper;
 public class DefaultOneToManyResolver implements OneToManyResolver {
     public OneToManySpec resolve(Connection conn, BeanMapping ownerMapping, String propertyName,
                                  TableNameExtractor tableNameExtractor, SchemaRegistry schemaRegistry) {
-        final BeanProperty toManyProp = ownerMapping.beanMetaData().beanProperties().get(propertyName);
-        if (toManyProp == null) {
-            throw new IllegalArgumentException(ownerMapping.beanMetaData().beanType() + " has no mapped property " + propertyName);
-        }
+        final BeanProperty toManyProp = toManyProperty(ownerMapping, propertyName);
 
         final Optional<OneToMany> annot = toManyProp.getAnnotation(OneToMany.class);
         final Class<?> elementClass = elementClass(annot, toManyProp);
@@ -31,6 +28,25 @@ public class DefaultOneToManyResolver implements OneToManyResolver {
         return new OneToManySpec(fk, elementClass, CollectionBuildStrategy.get(toManyProp.propClass()), keyType);
     }
 
+    @Override public ForeignKeySpec resolveForeignKey(Connection conn, BeanMapping ownerMapping, String propertyName,
+                                                      TableNameExtractor tableNameExtractor, SchemaRegistry schemaRegistry) {
+        final BeanProperty prop = toManyProperty(ownerMapping, propertyName);
+
+        final Optional<OneToMany> annot = prop.getAnnotation(OneToMany.class);
+        final String elementTable = annot.isPresent() && !annot.get().elementTable().isEmpty()
+                ? annot.get().elementTable()
+                : tableNameExtractor.tableNameForBean(conn, elementClass(annot, prop), schemaRegistry);
+        return foreignKeySpec(annot, elementTable, ownerMapping, conn, schemaRegistry);
+    }
+
+    private BeanProperty toManyProperty(BeanMapping ownerMapping, String propertyName) {
+        final BeanProperty result = ownerMapping.beanMetaData().beanProperties().get(propertyName);
+        if (result == null) {
+            throw new IllegalArgumentException(ownerMapping.beanMetaData().beanType() + " has no mapped property " + propertyName);
+        }
+        return result;
+    }
+
     private Class<?> elementClass(Optional<OneToMany> annot, BeanProperty toManyProp) {
         if (annot.isPresent() && annot.get().elementType() != Void.class) {
             return annot.get().elementType();
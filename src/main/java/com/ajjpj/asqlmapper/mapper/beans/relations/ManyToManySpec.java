@@ -3,6 +3,8 @@ package com.ajjpj.asqlmapper.mapper.beans.relations;
 
 import java.util.Objects;
 
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
 
 public class ManyToManySpec {
@@ -18,8 +20,27 @@ public class ManyToManySpec {
     private final CollectionBuildStrategy collectionBuildStrategy;
     private final Class<?> keyType;
 
+    private final AOption<String> orderBy;
+    private final AOption<Integer> limitPerParent;
+    private final AOption<SqlSnippet> condition;
+
     public ManyToManySpec (String manyManyTable, String fkToOwner, String fkToCollection, String ownerPk,
                            String collTable, String collPk, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType) {
+        this(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType,
+                AOption.none(), AOption.none(), AOption.none());
+    }
+
+    /**
+     * @param orderBy        an ORDER BY expression for the elements of each collection. It is evaluated in a join of the
+     *                       collection table (alias 'a') and the many-to-many table (alias 'b').
+     * @param limitPerParent the maximum number of elements per collection; it is applied in the database if the dialect
+     *                       supports window functions, and by skipping surplus rows otherwise
+     * @param condition      an additional condition restricting the elements that are loaded, evaluated with the same
+     *                       aliases as orderBy
+     */
+    public ManyToManySpec (String manyManyTable, String fkToOwner, String fkToCollection, String ownerPk,
+                           String collTable, String collPk, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType,
+                           AOption<String> orderBy, AOption<Integer> limitPerParent, AOption<SqlSnippet> condition) {
         this.manyManyTable = manyManyTable;
         this.fkToOwner = fkToOwner;
         this.fkToCollection = fkToCollection;
@@ -29,6 +50,24 @@ public class ManyToManySpec {
         this.elementClass = elementClass;
         this.collectionBuildStrategy = collectionBuildStrategy;
         this.keyType = keyType;
+        this.orderBy = orderBy;
+        this.limitPerParent = limitPerParent;
+        this.condition = condition;
+    }
+
+    public ManyToManySpec withOrderBy (String orderBy) {
+        return new ManyToManySpec(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType,
+                AOption.some(orderBy), limitPerParent, condition);
+    }
+
+    public ManyToManySpec withLimitPerParent (int limitPerParent) {
+        return new ManyToManySpec(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType,
+                orderBy, AOption.some(limitPerParent), condition);
+    }
+
+    public ManyToManySpec withCondition (SqlSnippet condition) {
+        return new ManyToManySpec(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType,
+                orderBy, limitPerParent, AOption.some(condition));
     }
 
     public String manyManyTable () {
@@ -67,6 +106,18 @@ public class ManyToManySpec {
         return keyType;
     }
 
+    public AOption<String> orderBy () {
+        return orderBy;
+    }
+
+    public AOption<Integer> limitPerParent () {
+        return limitPerParent;
+    }
+
+    public AOption<SqlSnippet> condition () {
+        return condition;
+    }
+
     @Override public boolean equals (Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
@@ -79,11 +130,14 @@ public class ManyToManySpec {
                 Objects.equals(collPk, that.collPk) &&
                 Objects.equals(elementClass, that.elementClass) &&
                 Objects.equals(collectionBuildStrategy, that.collectionBuildStrategy) &&
-                Objects.equals(keyType, that.keyType);
+                Objects.equals(keyType, that.keyType) &&
+                Objects.equals(orderBy, that.orderBy) &&
+                Objects.equals(limitPerParent, that.limitPerParent) &&
+                Objects.equals(condition, that.condition);
     }
 
     @Override public int hashCode () {
-        return Objects.hash(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType);
+        return Objects.hash(manyManyTable, fkToOwner, fkToCollection, ownerPk, collTable, collPk, elementClass, collectionBuildStrategy, keyType, orderBy, limitPerParent, condition);
     }
 
     @Override public String toString () {
@@ -97,6 +151,9 @@ public class ManyToManySpec {
                 ", elementClass=" + elementClass +
                 ", collectionBuildStrategy=" + collectionBuildStrategy +
                 ", keyType=" + keyType +
+                ", orderBy=" + orderBy +
+                ", limitPerParent=" + limitPerParent +
+                ", condition=" + condition +
                 '}';
     }
 }
@@ -5,10 +5,22 @@ import java.util.Optional;
 
 import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
 import com.ajjpj.asqlmapper.mapper.beans.tablename.TableNameExtractor;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
 
 public interface OneToManyResolver {
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     OneToManySpec resolve(Connection conn, BeanMapping ownerMapping, String propertyName,
                                  TableNameExtractor tableNameExtractor, SchemaRegistry schemaRegistry);
+
+    /**
+     * Resolves only the foreign key of a one-to-many relation. This is used for properties that hold an aggregate
+     *  over a relation's elements (e.g. their number) rather than the elements themselves, so the property's type
+     *  need not be a collection. Such properties are typically annotated with
+     *  {@link com.ajjpj.asqlmapper.javabeans.annotations.OneToMany} to specify the element type or table.
+     */
+    default ForeignKeySpec resolveForeignKey(Connection conn, BeanMapping ownerMapping, String propertyName,
+                                             TableNameExtractor tableNameExtractor, SchemaRegistry schemaRegistry) {
+        return resolve(conn, ownerMapping, propertyName, tableNameExtractor, schemaRegistry).foreignKeySpec();
+    }
 }
@@ -2,6 +2,8 @@ package com.ajjpj.asqlmapper.mapper.beans.relations;
 
 import java.util.Objects;
 
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
 import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 
@@ -11,11 +13,41 @@ public class OneToManySpec {
     private final CollectionBuildStrategy collectionBuildStrategy;
     private final Class<?> keyType;
 
+    private final AOption<String> orderBy;
+    private final AOption<Integer> limitPerParent;
+    private final AOption<SqlSnippet> condition;
+
     public OneToManySpec (ForeignKeySpec foreignKeySpec, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType) {
+        this(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, AOption.none(), AOption.none(), AOption.none());
+    }
+
+    /**
+     * @param orderBy        an ORDER BY expression for the elements of each collection, evaluated against the element table
+     * @param limitPerParent the maximum number of elements per collection; it is applied in the database if the dialect
+     *                       supports window functions, and by skipping surplus rows otherwise
+     * @param condition      an additional condition on the element table, restricting the elements that are loaded
+     */
+    public OneToManySpec (ForeignKeySpec foreignKeySpec, Class<?> elementClass, CollectionBuildStrategy collectionBuildStrategy, Class<?> keyType,
+                          AOption<String> orderBy, AOption<Integer> limitPerParent, AOption<SqlSnippet> condition) {
         this.foreignKeySpec = foreignKeySpec;
         this.elementClass = elementClass;
         this.collectionBuildStrategy = collectionBuildStrategy;
         this.keyType = keyType;
+        this.orderBy = orderBy;
+        this.limitPerParent = limitPerParent;
+        this.condition = condition;
+    }
+
+    public OneToManySpec withOrderBy (String orderBy) {
+        return new OneToManySpec(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, AOption.some(orderBy), limitPerParent, condition);
+    }
+
+    public OneToManySpec withLimitPerParent (int limitPerParent) {
+        return new OneToManySpec(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, orderBy, AOption.some(limitPerParent), condition);
+    }
+
+    public OneToManySpec withCondition (SqlSnippet condition) {
+        return new OneToManySpec(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, orderBy, limitPerParent, AOption.some(condition));
     }
 
     public ForeignKeySpec foreignKeySpec () {
@@ -34,6 +66,18 @@ public class OneToManySpec {
         return keyType;
     }
 
+    public AOption<String> orderBy () {
+        return orderBy;
+    }
+
+    public AOption<Integer> limitPerParent () {
+        return limitPerParent;
+    }
+
+    public AOption<SqlSnippet> condition () {
+        return condition;
+    }
+
     @Override public boolean equals (Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
@@ -41,11 +85,14 @@ public class OneToManySpec {
         return Objects.equals(foreignKeySpec, that.foreignKeySpec) &&
                 Objects.equals(elementClass, that.elementClass) &&
                 Objects.equals(collectionBuildStrategy, that.collectionBuildStrategy) &&
-                Objects.equals(keyType, that.keyType);
+                Objects.equals(keyType, that.keyType) &&
+                Objects.equals(orderBy, that.orderBy) &&
+                Objects.equals(limitPerParent, that.limitPerParent) &&
+                Objects.equals(condition, that.condition);
     }
 
     @Override public int hashCode () {
-        return Objects.hash(foreignKeySpec, elementClass, collectionBuildStrategy, keyType);
+        return Objects.hash(foreignKeySpec, elementClass, collectionBuildStrategy, keyType, orderBy, limitPerParent, condition);
     }
 
     @Override public String toString () {
@@ -54,6 +101,9 @@ public class OneToManySpec {
                 ", elementClass=" + elementClass +
                 ", collectionBuildStrategy=" + collectionBuildStrategy +
                 ", keyType=" + keyType +
+                ", orderBy=" + orderBy +
+                ", limitPerParent=" + limitPerParent +
+                ", condition=" + condition +
                 '}';
     }
 }
@@ -0,0 +1,237 @@
+package com.ajjpj.asqlmapper.mapper.beans.relations;
+
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.in;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.util.List;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToOneProperty;
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
+
+/**
+ * A RelationFetchPlan is the compiled form of a relation spec, i.e. everything that is needed for loading a relation
+ *  except the owning query: the detail SQL surrounding the owners' keys, and the columns and strategies for assigning
+ *  detail rows to owners.<p>
+ *
+ * The detail SQL restricts detail rows by the owners' keys, which can be passed either as a subquery wrapping the
+ *  owning query (see {@link #detailSql(SqlSnippet)}) or as a list of key values collected beforehand (see
+ *  {@link #detailSqlForKeys(List)}).<p>
+ *
+ * Plans are immutable and can be shared between queries and threads. {@link com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistryImpl}
+ *  compiles them once per owning class, property and spec structure, i.e. ignoring the values of the condition's
+ *  parameters and the limit per parent; these values are bound per execution with {@link #bind(AOption, AOption)}.
+ */
+@SuppressWarnings("unchecked")
+public class RelationFetchPlan {
+    private static final String ROW_NUMBER_ALIAS = "\"$$rn\"";
+
+    private final SqlSnippet detailSqlHead;
+    private final String ownerKeyColumn;
+    private final AOption<String> conditionSql;
+    private final AOption<String> limitSql;
+    private final SqlSnippet detailSqlTail;
+    private final Class<?> elementClass;
+    private final String masterKeyName;
+    private final Class<?> keyType;
+    private final String detailKeyName;
+    private final AOption<CollectionBuildStrategy> collectionBuildStrategy;
+
+    private final AList<?> conditionParams;
+    private final AOption<Integer> limitPerParent;
+
+    private RelationFetchPlan (SqlSnippet detailSqlHead, String ownerKeyColumn, AOption<String> conditionSql, AOption<String> limitSql, SqlSnippet detailSqlTail,
+                               Class<?> elementClass, String masterKeyName, Class<?> keyType, String detailKeyName,
+                               AOption<CollectionBuildStrategy> collectionBuildStrategy, AList<?> conditionParams, AOption<Integer> limitPerParent) {
+        this.detailSqlHead = detailSqlHead;
+        this.ownerKeyColumn = ownerKeyColumn;
+        this.conditionSql = conditionSql;
+        this.limitSql = limitSql;
+        this.detailSqlTail = detailSqlTail;
+        this.elementClass = elementClass;
+        this.masterKeyName = masterKeyName;
+        this.keyType = keyType;
+        this.detailKeyName = detailKeyName;
+        this.collectionBuildStrategy = collectionBuildStrategy;
+        this.conditionParams = conditionParams;
+        this.limitPerParent = limitPerParent;
+    }
+
+    public static RelationFetchPlan forOneToMany (OneToManySpec rel, DatabaseDialect dialect) {
+        final ForeignKeySpec fk = rel.foreignKeySpec();
+        final boolean limitInDatabase = rel.limitPerParent().isDefined() && dialect.supportsWindowFunctions();
+
+        final SqlSnippet head;
+        final AOption<String> limitSql;
+        final SqlSnippet tail;
+        if (limitInDatabase) {
+            // push the limit per parent to the database by numbering each parent's elements with a window function
+            head = concat(
+                    sql("SELECT * FROM (SELECT d.*, ROW_NUMBER() OVER (PARTITION BY d." + fk.fkColumnName() + " ORDER BY " + rel.orderBy().orElse("d." + fk.fkColumnName()) +
+                            ") AS " + ROW_NUMBER_ALIAS),
+                    sql("FROM " + fk.fkTableName() + " d WHERE d." + fk.fkColumnName())
+            );
+            limitSql = AOption.some(") Y WHERE " + ROW_NUMBER_ALIAS + "<=?");
+            tail = sql("ORDER BY " + fk.fkColumnName() + ", " + ROW_NUMBER_ALIAS);
+        }
+        else {
+            head = sql("SELECT * FROM " + fk.fkTableName() + " d WHERE d." + fk.fkColumnName());
+            limitSql = AOption.none();
+            tail = orderBy(rel.orderBy());
+        }
+
+        return new RelationFetchPlan(head, fk.pkColumnName(), rel.condition().map(SqlSnippet::getSql), limitSql, tail, rel.elementClass(), fk.pkColumnName(),
+                rel.keyType(), fk.fkColumnName(), AOption.some(rel.collectionBuildStrategy()), AVector.empty(), AOption.none())
+                .bind(rel.condition(), rel.limitPerParent());
+    }
+
+    public static RelationFetchPlan forManyToMany (ManyToManySpec rel, DatabaseDialect dialect) {
+        final boolean limitInDatabase = rel.limitPerParent().isDefined() && dialect.supportsWindowFunctions();
+        final String fkToOwnerAlias = "$$" + rel.fkToOwner();
+
+        final SqlSnippet fromWhere = concat(
+                sql("FROM " + rel.collTable() + " a INNER JOIN " + rel.manyManyTable() + " b ON a." + rel.collPk() + "=b." + rel.fkToCollection()),
+                sql("WHERE b." + rel.fkToOwner())
+        );
+
+        final SqlSnippet head;
+        final AOption<String> limitSql;
+        final SqlSnippet tail;
+        if (limitInDatabase) {
+            // push the limit per parent to the database by numbering each parent's elements with a window function
+            head = concat(
+                    sql("SELECT * FROM (SELECT b." + rel.fkToOwner() + " AS \"" + fkToOwnerAlias + "\", a.*,"),
+                    sql("ROW_NUMBER() OVER (PARTITION BY b." + rel.fkToOwner() + " ORDER BY " + rel.orderBy().orElse("a." + rel.collPk()) + ") AS " + ROW_NUMBER_ALIAS),
+                    fromWhere
+            );
+            limitSql = AOption.some(") y WHERE " + ROW_NUMBER_ALIAS + "<=?");
+            tail = sql("ORDER BY \"" + fkToOwnerAlias + "\", " + ROW_NUMBER_ALIAS);
+        }
+        else {
+            head = concat(
+                    sql("SELECT b." + rel.fkToOwner() + " AS \"" + fkToOwnerAlias + "\", a.*"),
+                    fromWhere
+            );
+            limitSql = AOption.none();
+            tail = orderBy(rel.orderBy());
+        }
+
+        return new RelationFetchPlan(head, rel.ownerPk(), rel.condition().map(SqlSnippet::getSql), limitSql, tail, rel.elementClass(), rel.ownerPk(),
+                rel.keyType(), fkToOwnerAlias, AOption.some(rel.collectionBuildStrategy()), AVector.empty(), AOption.none())
+                .bind(rel.condition(), rel.limitPerParent());
+    }
+
+    public static RelationFetchPlan forToOne (ToOneSpec rel) {
+        final ForeignKeySpec fk = rel.foreignKeySpec();
+
+        //TODO ensure (in the mapper?) that the 'master' foreign key is part of the owning query - back propagation?
+        return new RelationFetchPlan(
+                sql("SELECT * FROM " + fk.pkTableName() + " WHERE " + fk.pkColumnName()),
+                fk.fkColumnName(),
+                AOption.none(),
+                AOption.none(),
+                SqlSnippet.EMPTY,
+                rel.elementClass(), fk.fkColumnName(), rel.keyType(), fk.pkColumnName(), AOption.none(), AVector.empty(), AOption.none());
+    }
+
+    private static SqlSnippet orderBy (AOption<String> orderBy) {
+        return orderBy.isDefined() ? sql("ORDER BY " + orderBy.get()) : SqlSnippet.EMPTY;
+    }
+
+    /**
+     * @return a copy of this plan for a given condition and limit per parent. The condition must have the SQL text
+     *          this plan was compiled for, and a limit must be given if and only if the plan was compiled with one;
+     *          only their values (i.e. the condition's parameters and the limit) may differ.
+     */
+    public RelationFetchPlan bind (AOption<SqlSnippet> condition, AOption<Integer> limitPerParent) {
+        if (!condition.map(SqlSnippet::getSql).equals(conditionSql)) {
+            throw new IllegalArgumentException("condition " + condition + " does not match the fetch plan's condition " + conditionSql);
+        }
+        if (limitSql.isDefined() && limitPerParent.isEmpty()) {
+            throw new IllegalArgumentException("the fetch plan requires a limit per parent");
+        }
+        return new RelationFetchPlan(detailSqlHead, ownerKeyColumn, conditionSql, limitSql, detailSqlTail, elementClass, masterKeyName, keyType, detailKeyName,
+                collectionBuildStrategy, condition.isDefined() ? condition.get().getParams() : AVector.empty(), limitPerParent);
+    }
+
+    private SqlSnippet detailSqlTail () {
+        return concat(
+                conditionSql.isDefined() ? concat(sql("AND ("), sql(conditionSql.get(), conditionParams), sql(")")) : SqlSnippet.EMPTY,
+                limitSql.isDefined() ? sql(limitSql.get(), limitPerParent.get()) : SqlSnippet.EMPTY,
+                detailSqlTail
+        );
+    }
+
+    public Class<?> elementClass () {
+        return elementClass;
+    }
+
+    public Class<?> keyType () {
+        return keyType;
+    }
+
+    /**
+     * @return the SQL for loading the relation's elements for all rows of a given owning query
+     */
+    public SqlSnippet detailSql (SqlSnippet owningQuery) {
+        return concat(detailSqlHead, sql("IN (SELECT " + ownerKeyColumn + " FROM ("), owningQuery, sql(") X)"), detailSqlTail());
+    }
+
+    /**
+     * @return the SQL for selecting the owners' keys from a given owning query, i.e. the values the relation's detail
+     *          rows refer to
+     */
+    public SqlSnippet ownerKeySql (SqlSnippet owningQuery) {
+        return concat(sql("SELECT " + ownerKeyColumn + " FROM ("), owningQuery, sql(") X"));
+    }
+
+    /**
+     * @return the SQL for loading the relation's elements for a given list of owner keys, as returned by
+     *          {@link #ownerKeySql(SqlSnippet)}
+     */
+    public SqlSnippet detailSqlForKeys (List<?> ownerKeys) {
+        if (ownerKeys.isEmpty()) {
+            return concat(detailSqlHead, sql("IN (NULL)"), detailSqlTail());
+        }
+        return concat(detailSqlHead, in(ownerKeys), detailSqlTail());
+    }
+
+    /**
+     * @param detailQuery a query for {@link #detailSql(SqlSnippet)}, mapping rows to {@link #elementClass()}
+     * @return an injected property assigning the detail query's elements to the owning query's rows
+     */
+    public InjectedProperty<?> injectedProperty (String propertyName, AQuery<?> detailQuery) {
+        if (collectionBuildStrategy.isDefined()) {
+            // a limit that is not applied in the database is applied by skipping surplus rows
+            final AOption<Integer> limitPerKey = limitSql.isDefined() ? AOption.none() : limitPerParent;
+            return new InjectedToManyProperty(propertyName, masterKeyName, keyType, detailKeyName, detailQuery, collectionBuildStrategy.get(), limitPerKey);
+        }
+        return new InjectedToOneProperty(propertyName, masterKeyName, keyType, detailKeyName, detailQuery);
+    }
+
+    @Override public String toString () {
+        return "RelationFetchPlan{" +
+                "detailSqlHead=" + detailSqlHead +
+                ", ownerKeyColumn='" + ownerKeyColumn + '\'' +
+                ", conditionSql=" + conditionSql +
+                ", limitSql=" + limitSql +
+                ", detailSqlTail=" + detailSqlTail +
+                ", elementClass=" + elementClass +
+                ", masterKeyName='" + masterKeyName + '\'' +
+                ", keyType=" + keyType +
+                ", detailKeyName='" + detailKeyName + '\'' +
+                ", collectionBuildStrategy=" + collectionBuildStrategy +
+                ", conditionParams=" + conditionParams +
+                ", limitPerParent=" + limitPerParent +
+                '}';
+    }
+}
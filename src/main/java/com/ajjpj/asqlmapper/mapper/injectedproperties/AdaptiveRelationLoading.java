@@ -0,0 +1,234 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ajjpj.acollections.immutable.AVector;
+import com.ajjpj.acollections.util.AOption;
+
+/**
+ * Chooses a {@link RelationLoadingStrategy} per relation based on observed costs. For every relation (i.e. owning
+ *  class and property), it records the number of executions, the time spent, and the numbers of master and detail
+ *  rows for each strategy.<p>
+ *
+ * Each strategy is tried until it has {@code minSamples} observations; after that, the strategy with the lowest
+ *  average time per execution is used. {@link RelationLoadingStrategy#COLLECTED_KEYS} is never chosen for relations
+ *  whose owning queries returned more than {@code maxCollectedKeys} rows on average, and executions collecting more
+ *  keys than that fall back to a subquery.<p>
+ *
+ * Instances are thread safe and are meant to be shared by all queries of a {@link com.ajjpj.asqlmapper.mapper.SqlMapper}.
+ */
+public class AdaptiveRelationLoading {
+    public static final int DEFAULT_MIN_SAMPLES = 5;
+    public static final int DEFAULT_MAX_COLLECTED_KEYS = 1000;
+
+    /**
+     * Is notified whenever the strategy chosen for a relation changes, including the first decision.
+     */
+    public interface DecisionListener {
+        void onDecision(Class<?> owningClass, String propertyName, RelationLoadingStrategy strategy, Map<RelationLoadingStrategy, Observations> observations);
+    }
+
+    private final int minSamples;
+    private final int maxCollectedKeys;
+    private final AVector<DecisionListener> listeners;
+
+    private final Map<RelationKey, RelationStats> stats = new ConcurrentHashMap<>();
+
+    public AdaptiveRelationLoading () {
+        this(DEFAULT_MIN_SAMPLES, DEFAULT_MAX_COLLECTED_KEYS);
+    }
+
+    /**
+     * @param minSamples       the number of executions per strategy before the observations are used for a decision
+     * @param maxCollectedKeys the maximum number of owner keys passed to a detail query as bind parameters
+     */
+    public AdaptiveRelationLoading (int minSamples, int maxCollectedKeys) {
+        this(minSamples, maxCollectedKeys, AVector.empty());
+    }
+
+    private AdaptiveRelationLoading (int minSamples, int maxCollectedKeys, AVector<DecisionListener> listeners) {
+        if (minSamples < 1) {
+            throw new IllegalArgumentException("min samples must be positive");
+        }
+        if (maxCollectedKeys < 1) {
+            throw new IllegalArgumentException("max collected keys must be positive");
+        }
+        this.minSamples = minSamples;
+        this.maxCollectedKeys = maxCollectedKeys;
+        this.listeners = listeners;
+    }
+
+    /**
+     * @return a copy of this configuration with an additional listener. The copy starts without observations.
+     */
+    public AdaptiveRelationLoading withListener (DecisionListener listener) {
+        return new AdaptiveRelationLoading(minSamples, maxCollectedKeys, listeners.append(listener));
+    }
+
+    public int maxCollectedKeys () {
+        return maxCollectedKeys;
+    }
+
+    /**
+     * @return the strategy to use for the next execution of a relation
+     */
+    public RelationLoadingStrategy choose (Class<?> owningClass, String propertyName) {
+        final RelationStats relationStats = stats(owningClass, propertyName);
+
+        final RelationLoadingStrategy result;
+        final Map<RelationLoadingStrategy, Observations> observations;
+        synchronized (relationStats) {
+            observations = relationStats.snapshot();
+            result = decide(observations);
+            if (result == relationStats.lastDecision) {
+                return result;
+            }
+            relationStats.lastDecision = result;
+        }
+
+        listeners.forEach(l -> l.onDecision(owningClass, propertyName, result, observations));
+        return result;
+    }
+
+    private RelationLoadingStrategy decide (Map<RelationLoadingStrategy, Observations> observations) {
+        RelationLoadingStrategy best = null;
+        for (RelationLoadingStrategy strategy: RelationLoadingStrategy.values()) {
+            final Observations o = observations.get(strategy);
+            if (strategy == RelationLoadingStrategy.COLLECTED_KEYS && o.avgMasterRows().isDefined() && o.avgMasterRows().get() > maxCollectedKeys) {
+                continue;
+            }
+            if (o.executions() < minSamples) {
+                // explore strategies without sufficient observations first
+                return strategy;
+            }
+            if (best == null || o.avgNanos() < observations.get(best).avgNanos()) {
+                best = strategy;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Records the cost of a single execution of a relation.
+     *
+     * @param numMasterRows the number of rows of the owning query, if the strategy determined it
+     */
+    public void record (Class<?> owningClass, String propertyName, RelationLoadingStrategy strategy, long nanos, AOption<Integer> numMasterRows, int numDetailRows) {
+        final RelationStats relationStats = stats(owningClass, propertyName);
+        synchronized (relationStats) {
+            relationStats.observations.put(strategy, relationStats.observations.get(strategy).plus(nanos, numMasterRows, numDetailRows));
+        }
+    }
+
+    /**
+     * @return the observations recorded so far for a given relation, per strategy
+     */
+    public Map<RelationLoadingStrategy, Observations> observations (Class<?> owningClass, String propertyName) {
+        final RelationStats relationStats = stats(owningClass, propertyName);
+        synchronized (relationStats) {
+            return relationStats.snapshot();
+        }
+    }
+
+    private RelationStats stats (Class<?> owningClass, String propertyName) {
+        return stats.computeIfAbsent(new RelationKey(owningClass, propertyName), k -> new RelationStats());
+    }
+
+    /**
+     * Aggregated observations for a single relation and strategy.
+     */
+    public static class Observations {
+        private static final Observations EMPTY = new Observations(0, 0, 0, 0, 0);
+
+        private final long executions;
+        private final long totalNanos;
+        private final long executionsWithMasterRows;
+        private final long totalMasterRows;
+        private final long totalDetailRows;
+
+        private Observations (long executions, long totalNanos, long executionsWithMasterRows, long totalMasterRows, long totalDetailRows) {
+            this.executions = executions;
+            this.totalNanos = totalNanos;
+            this.executionsWithMasterRows = executionsWithMasterRows;
+            this.totalMasterRows = totalMasterRows;
+            this.totalDetailRows = totalDetailRows;
+        }
+
+        Observations plus (long nanos, AOption<Integer> numMasterRows, int numDetailRows) {
+            return new Observations(
+                    executions + 1,
+                    totalNanos + nanos,
+                    executionsWithMasterRows + (numMasterRows.isDefined() ? 1 : 0),
+                    totalMasterRows + (numMasterRows.isDefined() ? numMasterRows.get() : 0),
+                    totalDetailRows + numDetailRows);
+        }
+
+        public long executions () {
+            return executions;
+        }
+
+        public double avgNanos () {
+            return executions == 0 ? 0 : (double) totalNanos / executions;
+        }
+
+        /**
+         * @return the average number of master rows, if any execution determined them
+         */
+        public AOption<Double> avgMasterRows () {
+            return executionsWithMasterRows == 0 ? AOption.none() : AOption.some((double) totalMasterRows / executionsWithMasterRows);
+        }
+
+        public double avgDetailRows () {
+            return executions == 0 ? 0 : (double) totalDetailRows / executions;
+        }
+
+        @Override public String toString () {
+            return "Observations{" +
+                    "executions=" + executions +
+                    ", avgNanos=" + avgNanos() +
+                    ", avgMasterRows=" + avgMasterRows() +
+                    ", avgDetailRows=" + avgDetailRows() +
+                    '}';
+        }
+    }
+
+    private static class RelationStats {
+        final Map<RelationLoadingStrategy, Observations> observations = new EnumMap<>(RelationLoadingStrategy.class);
+        RelationLoadingStrategy lastDecision;
+
+        RelationStats () {
+            for (RelationLoadingStrategy strategy: RelationLoadingStrategy.values()) {
+                observations.put(strategy, Observations.EMPTY);
+            }
+        }
+
+        Map<RelationLoadingStrategy, Observations> snapshot () {
+            return new EnumMap<>(observations);
+        }
+    }
+
+    private static class RelationKey {
+        private final Class<?> owningClass;
+        private final String propertyName;
+
+        RelationKey (Class<?> owningClass, String propertyName) {
+            this.owningClass = owningClass;
+            this.propertyName = propertyName;
+        }
+
+        @Override public boolean equals (Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RelationKey that = (RelationKey) o;
+            return Objects.equals(owningClass, that.owningClass) &&
+                    Objects.equals(propertyName, that.propertyName);
+        }
+
+        @Override public int hashCode () {
+            return Objects.hash(owningClass, propertyName);
+        }
+    }
+}
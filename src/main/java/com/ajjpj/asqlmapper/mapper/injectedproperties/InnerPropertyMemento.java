@@ -0,0 +1,49 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.Map;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+
+/**
+ * Mapped injected properties delegate to a core injected property that is created per query. Keeping that inner
+ *  property in the memento rather than in a field leaves the mapped properties stateless, so a single instance can
+ *  be shared by concurrent queries.
+ */
+@SuppressWarnings("unchecked")
+class InnerPropertyMemento {
+    private final InjectedProperty inner;
+    private final Object innerMemento;
+
+    private InnerPropertyMemento (InjectedProperty inner, Object innerMemento) {
+        this.inner = inner;
+        this.innerMemento = innerMemento;
+    }
+
+    static InnerPropertyMemento create (InjectedProperty inner, Connection conn, Class<?> owningClass, SqlSnippet owningQuery) {
+        return new InnerPropertyMemento(inner, inner.mementoPerQuery(conn, owningClass, owningQuery));
+    }
+
+    /**
+     * @return the number of detail values in the memento, counting each element of a collection value
+     */
+    int numDetailValues () {
+        if (!(innerMemento instanceof Map)) {
+            return 0;
+        }
+        int result = 0;
+        for (Object v: ((Map<?,?>) innerMemento).values()) {
+            result += v instanceof Collection ? ((Collection<?>) v).size() : 1;
+        }
+        return result;
+    }
+
+    static AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
+        final InnerPropertyMemento m = (InnerPropertyMemento) memento;
+        return m.inner.value(conn, currentRow, m.innerMemento);
+    }
+}
@@ -1,25 +1,19 @@
 package com.ajjpj.asqlmapper.mapper.injectedproperties;
 
-import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
-import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
-import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
-
 import java.sql.Connection;
-import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
-import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
-import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
-import com.ajjpj.asqlmapper.mapper.beans.BeanMapping;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ManyToManySpec;
-import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
 
 @SuppressWarnings("unchecked")
 public class MappedManyToMany implements InjectedProperty {
@@ -28,15 +22,58 @@ public class MappedManyToMany implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<ManyToManySpec> spec;
+    private final UnaryOperator<ManyToManySpec> specOverrides;
+    private final RelationLoader loader;
+
+    public MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                            BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<ManyToManySpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, AOption.none());
+    }
 
-    private InjectedToManyProperty inner;
+    /**
+     * @param adaptiveLoading if defined, chooses the loading strategy per execution based on observed costs
+     */
+    public MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                            BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<ManyToManySpec> spec,
+                            AOption<AdaptiveRelationLoading> adaptiveLoading) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, UnaryOperator.identity(), new RelationLoader(propertyName, queryFactory, adaptiveLoading));
+    }
 
-    public MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
-                            Optional<ManyToManySpec> spec) {
+    private MappedManyToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                             BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<ManyToManySpec> spec,
+                             UnaryOperator<ManyToManySpec> specOverrides, RelationLoader loader) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.specOverrides = specOverrides;
+        this.loader = loader;
+    }
+
+    /**
+     * @return a copy of this property with its elements ordered by a given ORDER BY expression, overriding the spec's ordering
+     */
+    public MappedManyToMany withOrderBy(String orderBy) {
+        return new MappedManyToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withOrderBy(orderBy)), loader);
+    }
+
+    /**
+     * @return a copy of this property with at most a given number of elements per parent, overriding the spec's limit
+     */
+    public MappedManyToMany withLimitPerParent(int limitPerParent) {
+        return new MappedManyToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withLimitPerParent(limitPerParent)), loader);
+    }
+
+    /**
+     * @return a copy of this property that loads only elements matching a given condition, overriding the spec's condition.
+     *          The condition becomes part of the detail query's WHERE clause, so filtering happens in the database.
+     */
+    public MappedManyToMany withCondition(SqlSnippet condition) {
+        return new MappedManyToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withCondition(condition)), loader);
+    }
+
+    private UnaryOperator<ManyToManySpec> override(UnaryOperator<ManyToManySpec> f) {
+        return s -> f.apply(specOverrides.apply(s));
     }
 
     @Override public String propertyName() {
@@ -45,24 +82,24 @@ public class MappedManyToMany implements InjectedProperty {
 
     @Override
     public Object mementoPerQuery(Connection conn, Class owningClass, SqlSnippet owningQuery) {
-        final ManyToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveManyToMany(conn, owningClass, propertyName));
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.none());
+    }
 
-        final String fkToOwnerAlias = "$$" + rel.fkToOwner();
+    @Override
+    public Object mementoPerQuery(Connection conn, Class owningClass, SqlSnippet owningQuery, IdentityMap identityMap) {
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.some(identityMap));
+    }
 
-        final SqlSnippet detailSql = concat(
-                sql("SELECT b." + rel.fkToOwner() + " AS \"" + fkToOwnerAlias + "\", a.*"),
-                sql("FROM " + rel.collTable() + " a INNER JOIN " + rel.manyManyTable() + " b ON a." + rel.collPk() + "=b." + rel.fkToCollection()),
-                sql("WHERE b." + rel.fkToOwner() + " IN (SELECT " + rel.ownerPk() + " FROM ("),
-                owningQuery,
-                sql(") x)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+    private Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, AOption<IdentityMap> identityMap) {
+        final RelationFetchPlan plan = beanMappingRegistry.fetchPlan(owningClass, propertyName, effectiveSpec(conn, owningClass));
+        return loader.load(conn, owningClass, owningQuery, plan, identityMap);
+    }
 
-        inner = new InjectedToManyProperty(propertyName, rel.ownerPk(), rel.keyType(), fkToOwnerAlias, detailQuery, rel.collectionBuildStrategy());
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+    private ManyToManySpec effectiveSpec(Connection conn, Class<?> owningClass) {
+        return specOverrides.apply(spec.orElseGet(() -> beanMappingRegistry.resolveManyToMany(conn, owningClass, propertyName)));
     }
 
-    @Override public AOption<Object> value(Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
+        return InnerPropertyMemento.value(conn, currentRow, memento);
     }
 }
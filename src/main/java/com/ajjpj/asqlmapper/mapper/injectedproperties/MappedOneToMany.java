@@ -1,22 +1,19 @@
 package com.ajjpj.asqlmapper.mapper.injectedproperties;
 
-import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
-import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
-
 import java.sql.Connection;
-import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
-import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
 import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
-
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
 
 @SuppressWarnings("unchecked")
 public class MappedOneToMany implements InjectedProperty {
@@ -25,15 +22,58 @@ public class MappedOneToMany implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<OneToManySpec> spec;
+    private final UnaryOperator<OneToManySpec> specOverrides;
+    private final RelationLoader loader;
 
-    private InjectedToManyProperty inner;
+    public MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                           BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<OneToManySpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, AOption.none());
+    }
+
+    /**
+     * @param adaptiveLoading if defined, chooses the loading strategy per execution based on observed costs
+     */
+    public MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                           BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<OneToManySpec> spec,
+                           AOption<AdaptiveRelationLoading> adaptiveLoading) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, UnaryOperator.identity(), new RelationLoader(propertyName, queryFactory, adaptiveLoading));
+    }
 
-    public MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
-                           Optional<OneToManySpec> spec) {
+    private MappedOneToMany(String propertyName, BeanMappingRegistry beanMappingRegistry,
+                            BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<OneToManySpec> spec,
+                            UnaryOperator<OneToManySpec> specOverrides, RelationLoader loader) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.specOverrides = specOverrides;
+        this.loader = loader;
+    }
+
+    /**
+     * @return a copy of this property with its elements ordered by a given ORDER BY expression, overriding the spec's ordering
+     */
+    public MappedOneToMany withOrderBy(String orderBy) {
+        return new MappedOneToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withOrderBy(orderBy)), loader);
+    }
+
+    /**
+     * @return a copy of this property with at most a given number of elements per parent, overriding the spec's limit
+     */
+    public MappedOneToMany withLimitPerParent(int limitPerParent) {
+        return new MappedOneToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withLimitPerParent(limitPerParent)), loader);
+    }
+
+    /**
+     * @return a copy of this property that loads only elements matching a given condition, overriding the spec's condition.
+     *          The condition becomes part of the detail query's WHERE clause, so filtering happens in the database.
+     */
+    public MappedOneToMany withCondition(SqlSnippet condition) {
+        return new MappedOneToMany(propertyName, beanMappingRegistry, queryFactory, spec, override(s -> s.withCondition(condition)), loader);
+    }
+
+    private UnaryOperator<OneToManySpec> override(UnaryOperator<OneToManySpec> f) {
+        return s -> f.apply(specOverrides.apply(s));
     }
 
     @Override public String propertyName () {
@@ -42,20 +82,24 @@ public class MappedOneToMany implements InjectedProperty {
 
     @Override
     public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
-        final OneToManySpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveOneToMany(conn, owningClass, propertyName));
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.none());
+    }
 
-        final SqlSnippet detailSql = concat(
-                sql("SELECT * FROM " + rel.foreignKeySpec().fkTableName() + " WHERE " + rel.foreignKeySpec().fkColumnName() + " IN (SELECT " + rel.foreignKeySpec().pkColumnName() + " FROM ("),
-                owningQuery,
-                sql(") X)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+    @Override
+    public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, IdentityMap identityMap) {
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.some(identityMap));
+    }
+
+    private Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, AOption<IdentityMap> identityMap) {
+        final RelationFetchPlan plan = beanMappingRegistry.fetchPlan(owningClass, propertyName, effectiveSpec(conn, owningClass));
+        return loader.load(conn, owningClass, owningQuery, plan, identityMap);
+    }
 
-        inner = new InjectedToManyProperty(propertyName, rel.foreignKeySpec().pkColumnName(), rel.keyType(), rel.foreignKeySpec().fkColumnName(), detailQuery, rel.collectionBuildStrategy());
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+    private OneToManySpec effectiveSpec(Connection conn, Class<?> owningClass) {
+        return specOverrides.apply(spec.orElseGet(() -> beanMappingRegistry.resolveOneToMany(conn, owningClass, propertyName)));
     }
 
     @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+        return InnerPropertyMemento.value(conn, currentRow, memento);
     }
 }
@@ -0,0 +1,90 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.PrimitiveTypeRegistry;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedAggregateProperty;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.javabeans.BeanMetaData;
+import com.ajjpj.asqlmapper.javabeans.BeanProperty;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
+
+/**
+ * Injects an aggregate over the elements of a one-to-many relation (e.g. their number) into a scalar property,
+ *  without loading the elements. All values are loaded in a single detail query that groups by the foreign key.
+ */
+@SuppressWarnings("unchecked")
+public class MappedOneToManyAggregate implements InjectedProperty {
+    private final String propertyName;
+    private final String aggregateExpression;
+    private final AOption<Object> valueIfAbsent;
+    private final BeanMappingRegistry beanMappingRegistry;
+    private final PrimitiveTypeRegistry primTypes;
+    private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
+
+    private final Optional<ForeignKeySpec> spec;
+
+    /**
+     * @param aggregateExpression an SQL aggregate expression over the element table, e.g. {@code COUNT(*)} or {@code SUM(amount)}
+     * @param valueIfAbsent       the value for owners without elements, converted to the property's type; none() leaves the
+     *                            property unset
+     */
+    public MappedOneToManyAggregate(String propertyName, String aggregateExpression, AOption<Object> valueIfAbsent,
+                                    BeanMappingRegistry beanMappingRegistry, PrimitiveTypeRegistry primTypes,
+                                    BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, Optional<ForeignKeySpec> spec) {
+        this.propertyName = propertyName;
+        this.aggregateExpression = aggregateExpression;
+        this.valueIfAbsent = valueIfAbsent;
+        this.beanMappingRegistry = beanMappingRegistry;
+        this.primTypes = primTypes;
+        this.queryFactory = queryFactory;
+        this.spec = spec;
+    }
+
+    @Override public String propertyName () {
+        return propertyName;
+    }
+
+    @Override
+    public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
+        final ForeignKeySpec fk = spec.orElseGet(() -> beanMappingRegistry.resolveOneToManyForeignKey(conn, owningClass, propertyName));
+
+        final BeanMetaData ownerMetaData = beanMappingRegistry.getBeanMapping(conn, owningClass).beanMetaData();
+        final Class<?> valueType = ownerMetaData.getRequiredProperty(propertyName).propClass();
+        final BeanProperty keyProperty = ownerMetaData.getBeanPropertyForColumnName(fk.pkColumnName());
+        if (keyProperty == null) {
+            throw new IllegalArgumentException(owningClass + " has no property for column " + fk.pkColumnName() + " referenced by " + fk);
+        }
+        final Class<?> keyType = keyProperty.propClass();
+
+        final SqlSnippet detailSql = concat(
+                sql("SELECT " + aggregateExpression + " AS \"$$value\", " + fk.fkColumnName() + " FROM " + fk.fkTableName()),
+                sql("WHERE " + fk.fkColumnName() + " IN (SELECT " + fk.pkColumnName() + " FROM ("),
+                owningQuery,
+                sql(") X)"),
+                sql("GROUP BY " + fk.fkColumnName())
+        );
+
+        final AOption<Object> convertedValueIfAbsent = valueIfAbsent.isDefined()
+                ? AOption.some(primTypes.fromSql(valueType, valueIfAbsent.get()))
+                : AOption.none();
+
+        final InjectedAggregateProperty inner = new InjectedAggregateProperty(propertyName, fk.pkColumnName(), keyType, fk.fkColumnName(),
+                queryFactory.apply(valueType, detailSql), convertedValueIfAbsent);
+        return InnerPropertyMemento.create(inner, conn, owningClass, owningQuery);
+    }
+
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
+        return InnerPropertyMemento.value(conn, currentRow, memento);
+    }
+}
@@ -0,0 +1,212 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import static com.ajjpj.acollections.util.AUnchecker.executeUnchecked;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.concat;
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.ajjpj.acollections.AList;
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.RowExtractor;
+import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.common.SqlRow;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
+import com.ajjpj.asqlmapper.mapper.schema.ColumnMetaData;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
+import com.ajjpj.asqlmapper.mapper.schema.SchemaRegistry;
+
+/**
+ * Loads a self-referencing relation transitively, i.e. a property holding either the children of a bean (with their
+ *  children and so on), or its parent (with its parent and so on). All levels up to a given depth are loaded in a
+ *  single recursive query, and the nested bean structure is assembled in one pass over its result.<p>
+ *
+ * Beans at the depth limit have the relation property set to an empty value, i.e. an empty collection for
+ *  descendants and null for ancestors, regardless of whether there are more levels
+ *  in the database. The depth limit also ends recursion for cyclic data.
+ */
+@SuppressWarnings("unchecked")
+public class MappedRecursiveRelation implements InjectedProperty {
+    private static final String TREE_ALIAS = "\"$$tree\"";
+    private static final String DEPTH_COLUMN = "$$depth";
+    private static final String DEPTH_ALIAS = "\"" + DEPTH_COLUMN + "\"";
+
+    public enum Direction {
+        /** the property is a collection of child beans, and their children are loaded recursively */
+        DESCENDANTS,
+        /** the property is a reference to the parent bean, and its parent is loaded recursively */
+        ANCESTORS
+    }
+
+    private final String propertyName;
+    private final Direction direction;
+    private final int maxDepth;
+    private final BeanMappingRegistry beanMappingRegistry;
+    private final SchemaRegistry schemaRegistry;
+    private final SqlEngine engine;
+
+    public MappedRecursiveRelation(String propertyName, Direction direction, int maxDepth, BeanMappingRegistry beanMappingRegistry,
+                                   SchemaRegistry schemaRegistry, SqlEngine engine) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("max depth must be positive");
+        }
+        this.propertyName = propertyName;
+        this.direction = direction;
+        this.maxDepth = maxDepth;
+        this.beanMappingRegistry = beanMappingRegistry;
+        this.schemaRegistry = schemaRegistry;
+        this.engine = engine;
+    }
+
+    @Override public String propertyName () {
+        return propertyName;
+    }
+
+    @Override public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
+        return executeUnchecked(() -> direction == Direction.DESCENDANTS
+                ? descendants(conn, owningClass, owningQuery)
+                : ancestors(conn, owningClass, owningQuery));
+    }
+
+    @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object rawMemento) {
+        final Memento memento = (Memento) rawMemento;
+        final Object key = currentRow.get(memento.keyType, memento.masterKeyName);
+        return memento.values.containsKey(key) ? AOption.some(memento.values.get(key)) : memento.valueIfAbsent;
+    }
+
+    private Memento descendants (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) throws Exception {
+        final OneToManySpec rel = beanMappingRegistry.resolveOneToMany(conn, owningClass, propertyName);
+        final ForeignKeySpec fk = selfReferencing(rel.foreignKeySpec());
+        final CollectionBuildStrategy collectionBuildStrategy = rel.collectionBuildStrategy();
+        final RowExtractor rowExtractor = engine.rowExtractorFor(rel.elementClass());
+
+        final SqlSnippet seedCondition = concat(
+                sql("WHERE t." + fk.fkColumnName() + " IN (SELECT " + fk.pkColumnName() + " FROM ("),
+                owningQuery,
+                sql(") X)")
+        );
+        final AList<SqlRow> rows = engine.rawQuery(recursiveSql(conn, fk, seedCondition, "t." + fk.fkColumnName() + "=r." + fk.pkColumnName())).list(conn);
+
+        // rows are ordered by descending depth, so all children of a node are assembled before the node itself
+        final Map<Object, Map<Object,Object>> childrenByParent = new HashMap<>();
+        final Set<Object> rootKeys = new HashSet<>();
+        for (SqlRow row : rows) {
+            final Object key = row.get(rel.keyType(), fk.pkColumnName());
+            final Object parentKey = row.get(rel.keyType(), fk.fkColumnName());
+            final int depth = row.get(Integer.class, DEPTH_COLUMN);
+
+            final Object children = depth < maxDepth
+                    ? toCollection(collectionBuildStrategy, childrenByParent.get(key))
+                    : collectionBuildStrategy.empty();
+            final Map<String,Object> injected = Collections.singletonMap(propertyName, children);
+            final Object bean = rowExtractor.fromSql(rel.elementClass(), engine.primitiveTypeRegistry(), row, null, false, injected);
+
+            // a bean can occur more than once if the owning query contains both a node and its descendant. The
+            //  shallower occurrence comes later and has more levels loaded, so it replaces the deeper one.
+            childrenByParent.computeIfAbsent(parentKey, k -> new LinkedHashMap<>()).put(key, bean);
+            if (depth == 1) {
+                rootKeys.add(parentKey);
+            }
+        }
+
+        final Map<Object,Object> result = new HashMap<>();
+        for (Object rootKey : rootKeys) {
+            result.put(rootKey, toCollection(collectionBuildStrategy, childrenByParent.get(rootKey)));
+        }
+        return new Memento(rel.keyType(), fk.pkColumnName(), result, AOption.some(collectionBuildStrategy.empty()));
+    }
+
+    private Memento ancestors (Connection conn, Class<?> owningClass, SqlSnippet owningQuery) throws Exception {
+        final ToOneSpec rel = beanMappingRegistry.resolveToOne(conn, owningClass, propertyName);
+        final ForeignKeySpec fk = selfReferencing(rel.foreignKeySpec());
+        final RowExtractor rowExtractor = engine.rowExtractorFor(rel.elementClass());
+
+        final SqlSnippet seedCondition = concat(
+                sql("WHERE t." + fk.pkColumnName() + " IN (SELECT " + fk.fkColumnName() + " FROM ("),
+                owningQuery,
+                sql(") X)")
+        );
+        final AList<SqlRow> rows = engine.rawQuery(recursiveSql(conn, fk, seedCondition, "t." + fk.pkColumnName() + "=r." + fk.fkColumnName())).list(conn);
+
+        // rows are ordered by descending depth, so a node's parent is assembled before the node itself
+        final Map<Object,Object> byKey = new HashMap<>();
+        for (SqlRow row : rows) {
+            final Object key = row.get(rel.keyType(), fk.pkColumnName());
+            final Object parentKey = row.get(rel.keyType(), fk.fkColumnName());
+            final int depth = row.get(Integer.class, DEPTH_COLUMN);
+
+            final Object parent = depth < maxDepth && byKey.containsKey(parentKey)
+                    ? byKey.get(parentKey)
+                    : null;
+            final Map<String,Object> injected = Collections.singletonMap(propertyName, parent);
+
+            // shared ancestors occur once per path; the shallower occurrence comes later and has more levels loaded
+            byKey.put(key, rowExtractor.fromSql(rel.elementClass(), engine.primitiveTypeRegistry(), row, null, false, injected));
+        }
+        return new Memento(rel.keyType(), fk.fkColumnName(), byKey, AOption.none());
+    }
+
+    private static ForeignKeySpec selfReferencing (ForeignKeySpec fk) {
+        if (!fk.fkTableName().equalsIgnoreCase(fk.pkTableName())) {
+            throw new IllegalArgumentException("recursive loading requires a self-referencing foreign key, but got " + fk);
+        }
+        return fk;
+    }
+
+    private static Object toCollection (CollectionBuildStrategy collectionBuildStrategy, Map<Object,Object> elements) {
+        if (elements == null) {
+            return collectionBuildStrategy.empty();
+        }
+        final Object builder = collectionBuildStrategy.createBuilder();
+        for (Object el : elements.values()) {
+            collectionBuildStrategy.addElement(builder, el);
+        }
+        return collectionBuildStrategy.requiresFinalization() ? collectionBuildStrategy.finalizeBuilder(builder) : builder;
+    }
+
+    /**
+     * The columns are listed explicitly because some databases (e.g. Oracle) require a column list for recursive
+     *  common table expressions.
+     */
+    private SqlSnippet recursiveSql (Connection conn, ForeignKeySpec fk, SqlSnippet seedCondition, String joinCondition) {
+        final AList<String> columns = schemaRegistry.getRequiredTableMetaData(conn, fk.fkTableName()).columns().map(ColumnMetaData::colName);
+        final String columnList = columns.mkString(", ");
+        final String qualifiedColumnList = columns.map(c -> "t." + c).mkString(", ");
+
+        return concat(
+                sql(schemaRegistry.dialect().withRecursive() + " " + TREE_ALIAS + "(" + columnList + ", " + DEPTH_ALIAS + ") AS ("),
+                sql("SELECT " + qualifiedColumnList + ", 1 FROM " + fk.fkTableName() + " t"),
+                seedCondition,
+                sql("UNION ALL"),
+                sql("SELECT " + qualifiedColumnList + ", r." + DEPTH_ALIAS + "+1 FROM " + fk.fkTableName() + " t INNER JOIN " + TREE_ALIAS + " r ON " + joinCondition),
+                sql("WHERE r." + DEPTH_ALIAS + "<?", maxDepth),
+                sql(")"),
+                sql("SELECT * FROM " + TREE_ALIAS + " ORDER BY " + DEPTH_ALIAS + " DESC, " + fk.pkColumnName())
+        );
+    }
+
+    private static class Memento {
+        final Class<?> keyType;
+        final String masterKeyName;
+        final Map<Object,Object> values;
+        final AOption<Object> valueIfAbsent;
+
+        Memento (Class<?> keyType, String masterKeyName, Map<Object,Object> values, AOption<Object> valueIfAbsent) {
+            this.keyType = keyType;
+            this.masterKeyName = masterKeyName;
+            this.values = values;
+            this.valueIfAbsent = valueIfAbsent;
+        }
+    }
+}
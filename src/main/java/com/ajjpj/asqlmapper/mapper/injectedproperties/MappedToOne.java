@@ -1,19 +1,17 @@
 package com.ajjpj.asqlmapper.mapper.injectedproperties;
 
-import static com.ajjpj.asqlmapper.core.SqlSnippet.*;
-
 import java.sql.Connection;
-import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
 import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.common.SqlRow;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedProperty;
-import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToOneProperty;
 import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistry;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
 import com.ajjpj.asqlmapper.mapper.beans.relations.ToOneSpec;
 
 @SuppressWarnings("unchecked")
@@ -23,15 +21,23 @@ public class MappedToOne implements InjectedProperty {
     private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
 
     private final Optional<ToOneSpec> spec;
-
-    private InjectedToOneProperty inner;
+    private final RelationLoader loader;
 
     public MappedToOne(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
                        Optional<ToOneSpec> spec) {
+        this(propertyName, beanMappingRegistry, queryFactory, spec, AOption.none());
+    }
+
+    /**
+     * @param adaptiveLoading if defined, chooses the loading strategy per execution based on observed costs
+     */
+    public MappedToOne(String propertyName, BeanMappingRegistry beanMappingRegistry, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory,
+                       Optional<ToOneSpec> spec, AOption<AdaptiveRelationLoading> adaptiveLoading) {
         this.propertyName = propertyName;
         this.beanMappingRegistry = beanMappingRegistry;
         this.queryFactory = queryFactory;
         this.spec = spec;
+        this.loader = new RelationLoader(propertyName, queryFactory, adaptiveLoading);
     }
 
     @Override public String propertyName () {
@@ -40,21 +46,21 @@ public class MappedToOne implements InjectedProperty {
 
     @Override
     public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery) {
-        final ToOneSpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveToOne(conn, owningClass, propertyName));
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.none());
+    }
 
-        //TODO ensure (in the mapper?) that the 'master' foreign key is part of the owning query - back propagation?
-        final SqlSnippet detailSql = concat(
-                sql("SELECT * FROM " + rel.foreignKeySpec().pkTableName() + " WHERE " + rel.foreignKeySpec().pkColumnName() + " IN (SELECT " + rel.foreignKeySpec().fkColumnName() + " FROM ("),
-                owningQuery,
-                sql(") X)")
-        );
-        final AQuery<?> detailQuery = queryFactory.apply(rel.elementClass(), detailSql);
+    @Override
+    public Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, IdentityMap identityMap) {
+        return mementoPerQuery(conn, owningClass, owningQuery, AOption.some(identityMap));
+    }
 
-        inner = new InjectedToOneProperty(propertyName, rel.foreignKeySpec().fkColumnName(), rel.keyType(), rel.foreignKeySpec().pkColumnName(), detailQuery);
-        return inner.mementoPerQuery(conn, owningClass, owningQuery);
+    private Object mementoPerQuery (Connection conn, Class owningClass, SqlSnippet owningQuery, AOption<IdentityMap> identityMap) {
+        final ToOneSpec rel = spec.orElseGet(() -> beanMappingRegistry.resolveToOne(conn, owningClass, propertyName));
+        final RelationFetchPlan plan = beanMappingRegistry.fetchPlan(owningClass, propertyName, rel);
+        return loader.load(conn, owningClass, owningQuery, plan, identityMap);
     }
 
     @Override public AOption<Object> value (Connection conn, SqlRow currentRow, Object memento) {
-        return inner.value(conn, currentRow, (Map) memento);
+        return InnerPropertyMemento.value(conn, currentRow, memento);
     }
 }
@@ -0,0 +1,72 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import com.ajjpj.acollections.util.AOption;
+import com.ajjpj.asqlmapper.core.AQuery;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
+
+/**
+ * Executes a relation's {@link RelationFetchPlan} for an owning query. Without {@link AdaptiveRelationLoading}, the
+ *  detail query always wraps the owning query; with it, the strategy is chosen per execution and its cost is recorded.
+ */
+class RelationLoader {
+    private final String propertyName;
+    private final BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory;
+    private final AOption<AdaptiveRelationLoading> adaptiveLoading;
+
+    RelationLoader (String propertyName, BiFunction<Class<?>, SqlSnippet, AQuery<?>> queryFactory, AOption<AdaptiveRelationLoading> adaptiveLoading) {
+        this.propertyName = propertyName;
+        this.queryFactory = queryFactory;
+        this.adaptiveLoading = adaptiveLoading;
+    }
+
+    InnerPropertyMemento load (Connection conn, Class<?> owningClass, SqlSnippet owningQuery, RelationFetchPlan plan, AOption<IdentityMap> identityMap) {
+        if (!adaptiveLoading.isDefined()) {
+            return loadWithDetailSql(conn, owningClass, owningQuery, plan, plan.detailSql(owningQuery), identityMap);
+        }
+
+        final AdaptiveRelationLoading adaptive = adaptiveLoading.get();
+        final RelationLoadingStrategy strategy = adaptive.choose(owningClass, propertyName);
+        final long start = System.nanoTime();
+
+        final InnerPropertyMemento result;
+        final AOption<Integer> numMasterRows;
+        if (strategy == RelationLoadingStrategy.COLLECTED_KEYS) {
+            final List<?> masterKeys = queryFactory.apply(plan.keyType(), plan.ownerKeySql(owningQuery)).list(conn);
+            numMasterRows = AOption.some(masterKeys.size());
+
+            final SqlSnippet detailSql = masterKeys.size() > adaptive.maxCollectedKeys()
+                    ? plan.detailSql(owningQuery)
+                    : plan.detailSqlForKeys(distinctNonNull(masterKeys));
+            result = loadWithDetailSql(conn, owningClass, owningQuery, plan, detailSql, identityMap);
+        }
+        else {
+            numMasterRows = AOption.none();
+            result = loadWithDetailSql(conn, owningClass, owningQuery, plan, plan.detailSql(owningQuery), identityMap);
+        }
+
+        adaptive.record(owningClass, propertyName, strategy, System.nanoTime() - start, numMasterRows, result.numDetailValues());
+        return result;
+    }
+
+    private InnerPropertyMemento loadWithDetailSql (Connection conn, Class<?> owningClass, SqlSnippet owningQuery, RelationFetchPlan plan, SqlSnippet detailSql,
+                                                    AOption<IdentityMap> identityMap) {
+        final AQuery<?> rawDetailQuery = queryFactory.apply(plan.elementClass(), detailSql);
+        final AQuery<?> detailQuery = identityMap.isDefined() ? rawDetailQuery.withIdentityMap(identityMap.get()) : rawDetailQuery;
+        return InnerPropertyMemento.create(plan.injectedProperty(propertyName, detailQuery), conn, owningClass, owningQuery);
+    }
+
+    private static List<Object> distinctNonNull (List<?> keys) {
+        final Set<Object> result = new LinkedHashSet<>(keys);
+        result.remove(null);
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ajjpj.asqlmapper.mapper.injectedproperties;
+
+/**
+ * The ways a relation's detail query can restrict detail rows to the owning query's rows.
+ */
+public enum RelationLoadingStrategy {
+    /** the detail query wraps the owning query as a subquery, i.e. the database evaluates the owning query again */
+    SUBQUERY,
+    /** the owners' keys are selected first and passed to the detail query as an IN list of bind parameters */
+    COLLECTED_KEYS
+}
@@ -18,8 +18,17 @@ public class ColumnMetaData {
     private final boolean isPrimaryKey;
     private final boolean isAutoIncrement;
     private final boolean isNullable;
+    private final AOption<String> defaultValue;
 
     public ColumnMetaData (String colName, AOption<Class<?>> colClass, JDBCType colType, String colTypeName, int size, int precision, int scale, boolean isPrimaryKey, boolean isAutoIncrement, boolean isNullable) {
+        this(colName, colClass, colType, colTypeName, size, precision, scale, isPrimaryKey, isAutoIncrement, isNullable, AOption.none());
+    }
+
+    /**
+     * @param defaultValue the column's default value as an SQL expression, as reported by the JDBC driver
+     */
+    public ColumnMetaData (String colName, AOption<Class<?>> colClass, JDBCType colType, String colTypeName, int size, int precision, int scale, boolean isPrimaryKey, boolean isAutoIncrement, boolean isNullable,
+                           AOption<String> defaultValue) {
         this.colName = colName;
         this.colClass = colClass;
         this.colType = colType;
@@ -30,6 +39,7 @@ public class ColumnMetaData {
         this.isPrimaryKey = isPrimaryKey;
         this.isAutoIncrement = isAutoIncrement;
         this.isNullable = isNullable;
+        this.defaultValue = defaultValue;
     }
 
     public String colName() {
@@ -62,6 +72,9 @@ public class ColumnMetaData {
     public boolean isNullable () {
         return isNullable;
     }
+    public AOption<String> defaultValue () {
+        return defaultValue;
+    }
 
     @Override public String toString () {
         return "ColumnMetaData{" +
@@ -75,6 +88,7 @@ public class ColumnMetaData {
                 ", isPrimaryKey=" + isPrimaryKey +
                 ", isAutoIncrement=" + isAutoIncrement +
                 ", isNullable=" + isNullable +
+                ", defaultValue=" + defaultValue +
                 '}';
     }
 
@@ -92,11 +106,12 @@ public class ColumnMetaData {
                 Objects.equals(colName, that.colName) &&
                 Objects.equals(colClass, that.colClass) &&
                 colType == that.colType &&
-                Objects.equals(colTypeName, that.colTypeName);
+                Objects.equals(colTypeName, that.colTypeName) &&
+                Objects.equals(defaultValue, that.defaultValue);
     }
 
     @Override
     public int hashCode () {
-        return Objects.hash(colName, colClass, colType, colTypeName, size, precision, scale, isPrimaryKey, isAutoIncrement, isNullable);
+        return Objects.hash(colName, colClass, colType, colTypeName, size, precision, scale, isPrimaryKey, isAutoIncrement, isNullable, defaultValue);
     }
 }
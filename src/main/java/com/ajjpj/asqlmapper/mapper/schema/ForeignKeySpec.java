@@ -1,5 +1,6 @@
 package com.ajjpj.asqlmapper.mapper.schema;
 
+import java.util.Objects;
 
 public class ForeignKeySpec {
     private final String fkTableName;
@@ -38,4 +39,18 @@ public class ForeignKeySpec {
                 ", pkTableName='" + pkTableName + '\'' +
                 '}';
     }
+
+    @Override public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ForeignKeySpec that = (ForeignKeySpec) o;
+        return Objects.equals(fkTableName, that.fkTableName) &&
+                Objects.equals(fkColumnName, that.fkColumnName) &&
+                Objects.equals(pkColumnName, that.pkColumnName) &&
+                Objects.equals(pkTableName, that.pkTableName);
+    }
+
+    @Override public int hashCode () {
+        return Objects.hash(fkTableName, fkColumnName, pkColumnName, pkTableName);
+    }
 }
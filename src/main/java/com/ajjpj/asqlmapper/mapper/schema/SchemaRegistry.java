@@ -3,6 +3,7 @@ package com.ajjpj.asqlmapper.mapper.schema;
 import static com.ajjpj.acollections.util.AUnchecker.*;
 
 import java.sql.*;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -26,6 +27,10 @@ public class SchemaRegistry {
         this.dialect = dialect;
     }
 
+    public DatabaseDialect dialect() {
+        return dialect;
+    }
+
     public void clearCache() {
         tableCache.clear();
     }
@@ -73,6 +78,12 @@ public class SchemaRegistry {
                         foreignKeys = fks(rs);
                     }
 
+                    final Map<String, String> defaultValues;
+                    try (ResultSet rs = conn.getMetaData().getColumns(dialect.normalizeCatalogName(conn.getCatalog()),
+                            dialect.normalizeSchemaName(conn.getSchema()), dialect.normalizeTableName(tableName), null)) {
+                        defaultValues = defaultValues(rs);
+                    }
+
                     for (int i = 1; i <= rsMeta.getColumnCount(); i++) {
                         final String colName = rsMeta.getColumnName(i);
                         final AOption<Class<?>> colClass = classFor(rsMeta.getColumnClassName(i));
@@ -85,7 +96,8 @@ public class SchemaRegistry {
                         final boolean isAutoIncrement = rsMeta.isAutoIncrement(i);
                         final boolean isNullable = rsMeta.isNullable(i) == ResultSetMetaData.columnNullable;
 
-                        columns.add(new ColumnMetaData(colName, colClass, colType, colTypeName, size, precision, scale, pkColumnNames.contains(colName.toUpperCase()), isAutoIncrement, isNullable));
+                        columns.add(new ColumnMetaData(colName, colClass, colType, colTypeName, size, precision, scale, pkColumnNames.contains(colName.toUpperCase()), isAutoIncrement, isNullable,
+                                AOption.of(defaultValues.get(colName.toUpperCase()))));
                     }
                     return AOption.of(new TableMetaData(tableName, columns.build(), foreignKeys));
                 }
@@ -122,6 +134,17 @@ public class SchemaRegistry {
         return result.values().toVector();
     }
 
+    private Map<String, String> defaultValues(ResultSet rs) throws SQLException {
+        final Map<String, String> result = new HashMap<>();
+        while (rs.next()) {
+            final String defaultValue = rs.getString("COLUMN_DEF");
+            if (defaultValue != null) {
+                result.put(rs.getString("COLUMN_NAME").toUpperCase(), defaultValue);
+            }
+        }
+        return result;
+    }
+
     private ASet<String> pkColumnNames(ResultSet rs) throws SQLException {
         ASet<String> result = ASet.empty();
         while (rs.next()) {
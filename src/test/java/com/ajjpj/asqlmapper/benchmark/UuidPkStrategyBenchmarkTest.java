@@ -0,0 +1,121 @@
+package com.ajjpj.asqlmapper.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Wither;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.ajjpj.asqlmapper.SqlMapperBuilder;
+import com.ajjpj.asqlmapper.javabeans.annotations.Table;
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
+import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.beans.primarykey.PkStrategy;
+import com.ajjpj.asqlmapper.mapper.beans.primarykey.RandomUuidPkStrategy;
+import com.ajjpj.asqlmapper.mapper.beans.primarykey.TimeOrderedUuidPkStrategy;
+
+/**
+ * Compares random and time-ordered UUID primary keys for bulk inserts through {@link SqlMapper#insertMany(List)},
+ *  measuring insert throughput and the resulting on-disk size of the table and its primary key index. This uses a
+ *  file based H2 database because in-memory databases do not reflect page utilization.<p>
+ *
+ * This is a benchmark rather than a test, so it is skipped unless it is enabled explicitly, e.g. with
+ *  {@code mvn test -Dtest=UuidPkStrategyBenchmarkTest -Dasqlmapper.benchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "asqlmapper.benchmarks", matches = "true")
+class UuidPkStrategyBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(UuidPkStrategyBenchmarkTest.class);
+
+    private static final int NUM_ROWS = 500_000;
+    private static final int CHUNK_SIZE = 1_000;
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("uuid_person")
+    static class UuidPerson {
+        @Wither UUID id;
+        String name;
+    }
+
+    @Test
+    void testInsertMany() throws Exception {
+        // a first round per strategy warms up the JIT
+        run("random (warm-up)", new RandomUuidPkStrategy());
+        run("time-ordered (warm-up)", new TimeOrderedUuidPkStrategy());
+
+        final List<String> results = new ArrayList<>();
+        results.add(run("random", new RandomUuidPkStrategy()));
+        results.add(run("time-ordered", new TimeOrderedUuidPkStrategy()));
+        results.forEach(log::info);
+    }
+
+    private String run(String name, PkStrategy pkStrategy) throws Exception {
+        final Path dir = Files.createTempDirectory("asqlmapper-benchmark");
+        try {
+            try (Connection conn = DriverManager.getConnection("jdbc:h2:" + dir.resolve("db") + ";MODE=PostgreSQL", "sa", "")) {
+                conn.setAutoCommit(false);
+                executeUpdate(conn, "create table uuid_person(id uuid primary key, name varchar(200))");
+
+                final SqlMapper mapper = new SqlMapperBuilder()
+                        .withBeanStyle(SqlMapperBuilder.BeanStyle.lombok)
+                        .withDefaultConnectionSupplier(() -> conn)
+                        .withPkStrategyDecider((c, beanType, tableMetaData) -> pkStrategy)
+                        .build(DatabaseDialect.H2);
+
+                final long start = System.nanoTime();
+                for (int i = 0; i < NUM_ROWS; i += CHUNK_SIZE) {
+                    final List<UuidPerson> chunk = new ArrayList<>(CHUNK_SIZE);
+                    for (int j = 0; j < CHUNK_SIZE; j++) {
+                        chunk.add(new UuidPerson(null, "person " + (i + j)));
+                    }
+                    mapper.insertMany(chunk);
+                    conn.commit();
+                }
+                final long nanos = System.nanoTime() - start;
+
+                assertEquals(NUM_ROWS, singleLong(conn, "select count(*) from uuid_person"));
+                executeUpdate(conn, "checkpoint");
+                final long diskSpace = singleLong(conn, "call disk_space_used('UUID_PERSON')");
+
+                return String.format("%-24s %8d rows/s, %6d KiB for table and index", name, NUM_ROWS * 1_000_000_000L / nanos, diskSpace / 1024);
+            }
+        }
+        finally {
+            final File[] files = dir.toFile().listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    f.delete();
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void executeUpdate(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.executeUpdate();
+        }
+    }
+
+    private static long singleLong(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
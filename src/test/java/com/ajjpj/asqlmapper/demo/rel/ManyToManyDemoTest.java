@@ -12,13 +12,40 @@ import com.ajjpj.asqlmapper.SqlMapperBuilder;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
+import com.ajjpj.asqlmapper.javabeans.annotations.ManyToMany;
+import com.ajjpj.asqlmapper.javabeans.annotations.Table;
 import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.SyncResult;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Wither;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class ManyToManyDemoTest extends AbstractDatabaseTest {
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("person")
+    static class Resident {
+        Long id;
+        String name;
+        AList<Residence> addresses;
+
+        @ManyToMany(manyManyTable = "person_address")
+        public AList<Residence> getAddresses() {
+            return addresses;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("address")
+    static class Residence {
+        @Wither Long id;
+        String street;
+        String city;
+    }
+
     private SqlMapper mapper;
 
     @BeforeEach
@@ -42,6 +69,30 @@ public class ManyToManyDemoTest extends AbstractDatabaseTest {
         executeUpdate("drop table address");
     }
 
+    @Test
+    public void testSyncManyToMany() {
+        final SqlMapper lombokMapper = new SqlMapperBuilder()
+                .withDefaultConnectionSupplier(() -> conn)
+                .withBeanStyle(SqlMapperBuilder.BeanStyle.lombok)
+                .build(DatabaseDialect.H2);
+
+        final long personId = mapper.engine().insertLongPk("insert into person(name) values (?)", "Arno").executeSingle();
+        final Resident resident = new Resident(personId, "Arno", AList.empty());
+        final AList<Residence> residences = lombokMapper.insertMany(AList.of(
+                new Residence(null, "street1", "city1"), new Residence(null, "street2", "city2"), new Residence(null, "street3", "city3")));
+
+        final SyncResult<Residence> first = lombokMapper.syncManyToMany(resident, "addresses", AList.of(residences.get(0), residences.get(1)));
+        assertEquals(2, first.numInserted());
+        assertEquals(0, first.numDeleted());
+
+        final SyncResult<Residence> second = lombokMapper.syncManyToMany(resident, "addresses", AList.of(residences.get(1), residences.get(2)));
+        assertEquals(1, second.numInserted());
+        assertEquals(1, second.numDeleted());
+
+        assertEquals(AList.of(residences.get(1).getId(), residences.get(2).getId()),
+                mapper.engine().longQuery("select address_id from person_address where person_id=? order by address_id", personId).list());
+    }
+
     @Test
     public void testManyToMany() throws NoSuchMethodException {
         final long personId1 = mapper.engine().insertLongPk("insert into person(name) values (?)", "Arno1").executeSingle();
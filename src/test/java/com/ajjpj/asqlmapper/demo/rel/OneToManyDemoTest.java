@@ -1,23 +1,100 @@
 package com.ajjpj.asqlmapper.demo.rel;
 
+import static com.ajjpj.asqlmapper.core.SqlSnippet.sql;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Wither;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.ASet;
+import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.AbstractDatabaseTest;
 import com.ajjpj.asqlmapper.SqlMapperBuilder;
 import com.ajjpj.asqlmapper.core.SqlEngine;
+import com.ajjpj.asqlmapper.core.SqlSnippet;
 import com.ajjpj.asqlmapper.core.common.CollectionBuildStrategy;
+import com.ajjpj.asqlmapper.core.injectedproperties.InjectedScalarToManyProperty;
 import com.ajjpj.asqlmapper.core.injectedproperties.InjectedToManyProperty;
+import com.ajjpj.asqlmapper.javabeans.annotations.OneToMany;
+import com.ajjpj.asqlmapper.javabeans.annotations.Table;
+import com.ajjpj.asqlmapper.javabeans.columnnames.SnakeCaseColumnNameExtractor;
 import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.SyncResult;
+import com.ajjpj.asqlmapper.mapper.beans.BeanMappingRegistryImpl;
+import com.ajjpj.asqlmapper.mapper.beans.relations.OneToManySpec;
+import com.ajjpj.asqlmapper.mapper.beans.relations.RelationFetchPlan;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.AdaptiveRelationLoading;
+import com.ajjpj.asqlmapper.mapper.injectedproperties.RelationLoadingStrategy;
+import com.ajjpj.asqlmapper.mapper.schema.ForeignKeySpec;
 
 public class OneToManyDemoTest extends AbstractDatabaseTest  {
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("person")
+    static class Owner {
+        @Wither Long id;
+        String name;
+        @Wither AList<OwnedAddress> addresses;
+
+        @OneToMany
+        public AList<OwnedAddress> getAddresses() {
+            return addresses;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("address")
+    static class OwnedAddress {
+        @Wither Long id;
+        @Wither Long personId;
+        String street;
+        String city;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("person")
+    static class OwnerWithAddressStats {
+        @Wither Long id;
+        String name;
+        @Wither Long numAddresses;
+        @Wither String lastCity;
+
+        @OneToMany(elementType = OwnedAddress.class)
+        public Long getNumAddresses() {
+            return numAddresses;
+        }
+
+        @OneToMany(elementType = OwnedAddress.class)
+        public String getLastCity() {
+            return lastCity;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("person")
+    static class OwnerWithAddressIds {
+        @Wither Long id;
+        String name;
+        @Wither long[] addressIds;
+        @Wither int[] addressNumbers;
+    }
+
     private SqlMapper mapper;
 
     @BeforeEach
@@ -39,6 +116,211 @@ public class OneToManyDemoTest extends AbstractDatabaseTest  {
         executeUpdate("drop table person");
     }
 
+    private SqlMapper lombokMapper() {
+        return new SqlMapperBuilder()
+                .withDefaultConnectionSupplier(() -> conn)
+                .withBeanStyle(SqlMapperBuilder.BeanStyle.lombok)
+                .withColumnNameExtractor(new SnakeCaseColumnNameExtractor())
+                .build(DatabaseDialect.H2);
+    }
+
+    @Test
+    void testSaveGraph() {
+        final SqlMapper lombokMapper = lombokMapper();
+
+        final AList<Owner> saved = lombokMapper.saveGraph(AList.of(
+                new Owner(null, "Arno", AList.of(new OwnedAddress(null, null, "street11", "city11"), new OwnedAddress(null, null, "street12", "city12"))),
+                new Owner(null, "Albrecht", AList.empty()),
+                new Owner(null, "Alfred", AList.of(new OwnedAddress(null, null, "street31", "city31")))
+        ));
+
+        assertEquals(AList.of("Arno", "Albrecht", "Alfred"), saved.map(Owner::getName));
+        assertEquals(AList.of(2, 0, 1), saved.map(o -> o.getAddresses().size()));
+        for (Owner owner : saved) {
+            assertNotNull(owner.getId());
+            for (OwnedAddress address : owner.getAddresses()) {
+                assertNotNull(address.getId());
+                assertEquals(owner.getId(), address.getPersonId());
+            }
+        }
+
+        final AList<Owner> loaded = lombokMapper.query(Owner.class, "select * from person order by id").withOneToMany("addresses", "id").list();
+        assertEquals(saved.map(o -> o.getAddresses().map(OwnedAddress::getStreet)), loaded.map(o -> o.getAddresses().map(OwnedAddress::getStreet)));
+    }
+
+    @Test
+    void testSyncOneToMany() {
+        final SqlMapper lombokMapper = lombokMapper();
+
+        final long personId = mapper.insert(Person.of(0L, "Arno")).id();
+        final Owner owner = new Owner(personId, "Arno", AList.empty());
+
+        final SyncResult<OwnedAddress> first = lombokMapper.syncOneToMany(owner, "addresses",
+                AList.of(new OwnedAddress(null, null, "street1", "city1"), new OwnedAddress(null, null, "street2", "city2")));
+        assertEquals(2, first.numInserted());
+        assertEquals(0, first.numDeleted());
+        assertEquals(AList.of(personId, personId), first.elements().map(OwnedAddress::getPersonId));
+
+        final SyncResult<OwnedAddress> second = lombokMapper.syncOneToMany(owner, "addresses",
+                AList.of(first.elements().get(1), new OwnedAddress(null, null, "street3", "city3")));
+        assertEquals(1, second.numInserted());
+        assertEquals(1, second.numDeleted());
+        assertEquals(first.elements().get(1), second.elements().get(0));
+
+        assertEquals(AList.of("street2", "street3"),
+                lombokMapper.query(OwnedAddress.class, "select * from address where person_id=? order by id", personId).list().map(OwnedAddress::getStreet));
+    }
+
+    @Test
+    void testFetchPlanCaching() {
+        final long personId = mapper.insert(Person.of(0L, "Arno")).id();
+        for (int i = 1; i <= 3; i++) {
+            mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personId, "street" + i, "city" + i);
+        }
+        final BeanMappingRegistryImpl registry = (BeanMappingRegistryImpl) mapper.getBeanMappingRegistry();
+
+        // different parameter values share a plan, and every execution uses its own values
+        for (int i = 1; i <= 3; i++) {
+            final PersonWithAddresses person = mapper
+                    .query(PersonWithAddresses.class, "select * from person")
+                    .withOneToMany("addresses", sql("city<>?", "city" + i))
+                    .single();
+            assertEquals(2, person.addresses().size());
+            assertFalse(person.addresses().map(Address::city).contains("city" + i));
+        }
+        assertEquals(1, registry.numCachedFetchPlans());
+
+        for (int limit = 1; limit <= 3; limit++) {
+            final PersonWithAddresses person = mapper
+                    .query(PersonWithAddresses.class, "select * from person")
+                    .withOneToMany("addresses", "id", limit)
+                    .single();
+            assertEquals(limit, person.addresses().size());
+        }
+        assertEquals(2, registry.numCachedFetchPlans());
+
+        // a different condition text is a different structure
+        mapper.query(PersonWithAddresses.class, "select * from person").withOneToMany("addresses", sql("street<>?", "street1")).single();
+        assertEquals(3, registry.numCachedFetchPlans());
+    }
+
+    @Test
+    void testOneToManyAggregates() {
+        final SqlMapper lombokMapper = lombokMapper();
+
+        final long personId1 = mapper.insert(Person.of(0L, "Arno")).id();
+        final long personId2 = mapper.insert(Person.of(0L, "Albrecht")).id();
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personId1, "street11", "city11");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personId1, "street12", "city12");
+
+        final AList<OwnerWithAddressStats> counted = lombokMapper
+                .query(OwnerWithAddressStats.class, "select * from person order by id")
+                .withOneToManyCount("numAddresses")
+                .list();
+        assertEquals(AList.of(2L, 0L), counted.map(OwnerWithAddressStats::getNumAddresses));
+
+        // without a value for owners without elements, the property is left unset
+        final AList<OwnerWithAddressStats> unset = lombokMapper
+                .query(OwnerWithAddressStats.class, "select * from person order by id")
+                .withInjectedProperty(lombokMapper.oneToManyAggregate("lastCity", "MAX(city)", AOption.none()))
+                .list();
+        assertEquals("city12", unset.get(0).getLastCity());
+        assertNull(unset.get(1).getLastCity());
+
+        final AList<OwnerWithAddressStats> withDefault = lombokMapper
+                .query(OwnerWithAddressStats.class, "select * from person order by id")
+                .withInjectedProperty(lombokMapper.oneToManyAggregate("lastCity", "MAX(city)", AOption.some("-")))
+                .list();
+        assertEquals(AList.of("city12", "-"), withDefault.map(OwnerWithAddressStats::getLastCity));
+
+        // a foreign key referencing a column without a bean property is rejected with a descriptive exception
+        assertThrows(IllegalArgumentException.class, () -> lombokMapper
+                .query(OwnerWithAddressStats.class, "select * from person order by id")
+                .withInjectedProperty(lombokMapper.oneToManyAggregate("numAddresses", "COUNT(*)", AOption.some(0L),
+                        new ForeignKeySpec("person_id", "address", "no_such_column", "person")))
+                .list());
+    }
+
+    @Test
+    void testFetchPlanSql() {
+        final long personId = mapper.insert(Person.of(0L, "Arno")).id();
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personId, "street1", "city1");
+        mapper.engine().executeUpdate("insert into address(person_id, street, city) values (?,?,?)", personId, "street2", "x");
+
+        final OneToManySpec spec = new OneToManySpec(new ForeignKeySpec("person_id", "address", "id", "person"), Address.class,
+                CollectionBuildStrategy.forAVector(), Long.class)
+                .withCondition(sql("city<>?", "x"))
+                .withLimitPerParent(2);
+
+        final RelationFetchPlan plain = RelationFetchPlan.forOneToMany(spec, DatabaseDialect.H2);
+        final SqlSnippet plainSql = plain.detailSqlForKeys(AList.of(personId, 99L));
+        assertTrue(plainSql.getSql().contains("FROM address d WHERE d.person_id IN ( ? , ? )"), plainSql.getSql());
+        assertEquals(AList.of(personId, 99L, "x"), plainSql.getParams());
+        assertEquals(1, mapper.engine().rawQuery(plainSql).list().size());
+
+        final RelationFetchPlan windowed = RelationFetchPlan.forOneToMany(spec, new DatabaseDialect.H2Dialect() {
+            @Override public boolean supportsWindowFunctions () {
+                return true;
+            }
+        });
+        final SqlSnippet windowedSql = windowed.detailSqlForKeys(AList.of(personId, 99L));
+        assertTrue(windowedSql.getSql().contains("PARTITION BY d.person_id ORDER BY d.person_id"), windowedSql.getSql());
+        assertTrue(windowedSql.getSql().contains("FROM address d WHERE d.person_id IN ( ? , ? )"), windowedSql.getSql());
+        assertEquals(AList.of(personId, 99L, "x", 2), windowedSql.getParams());
+
+        // the subquery variant uses the same alias
+        assertTrue(windowed.detailSql(sql("select * from person")).getSql().contains("FROM address d WHERE d.person_id IN (SELECT id FROM ("));
+        assertTrue(plain.detailSql(sql("select * from person")).getSql().contains("FROM address d WHERE d.person_id IN (SELECT id FROM ("));
+    }
+
+    @Test
+    void testPrimitiveArrayInjection() {
+        final SqlMapper lombokMapper = lombokMapper();
+        final SqlEngine engine = lombokMapper.engine();
+
+        final long personId1 = mapper.insert(Person.of(0L, "Arno")).id();
+        final long personId2 = mapper.insert(Person.of(0L, "Albrecht")).id();
+        // more elements than the initial buffer capacity
+        final long[] expectedIds = new long[10];
+        final int[] expectedNumbers = new int[10];
+        for (int i = 0; i < 10; i++) {
+            expectedIds[i] = engine.insertLongPk("insert into address(person_id, street, city) values (?,?,?)", personId1, "street" + i, "city" + i).executeSingle();
+            expectedNumbers[i] = (int) expectedIds[i];
+        }
+
+        final AList<OwnerWithAddressIds> owners = lombokMapper
+                .query(OwnerWithAddressIds.class, "select * from person order by id")
+                .withInjectedProperty(new InjectedScalarToManyProperty<>("addressIds", "id", Long.class, "person_id", "id",
+                        engine.rawQuery("select person_id, id from address order by id"), CollectionBuildStrategy.forLongArray()))
+                .withInjectedProperty(new InjectedScalarToManyProperty<>("addressNumbers", "id", Long.class, "person_id", "n",
+                        engine.rawQuery("select person_id, cast(id as int) as n from address order by id"), CollectionBuildStrategy.forIntArray()))
+                .list();
+
+        assertEquals(AList.of(personId1, personId2), owners.map(OwnerWithAddressIds::getId));
+        assertArrayEquals(expectedIds, owners.get(0).getAddressIds());
+        assertArrayEquals(expectedNumbers, owners.get(0).getAddressNumbers());
+        assertArrayEquals(new long[0], owners.get(1).getAddressIds());
+        assertArrayEquals(new int[0], owners.get(1).getAddressNumbers());
+
+        // primitive arrays cannot hold null elements
+        final CollectionBuildStrategy.LongArrayStrategy longs = CollectionBuildStrategy.forLongArray();
+        assertThrows(IllegalArgumentException.class, () -> longs.addElement(longs.createBuilder(), null));
+        final CollectionBuildStrategy.IntArrayStrategy ints = CollectionBuildStrategy.forIntArray();
+        assertThrows(IllegalArgumentException.class, () -> ints.addElement(ints.createBuilder(), null));
+
+        // ... and a NULL detail value is rejected rather than stored as 0
+        assertThrows(IllegalArgumentException.class, () -> lombokMapper
+                .query(OwnerWithAddressIds.class, "select * from person order by id")
+                .withInjectedProperty(new InjectedScalarToManyProperty<>("addressIds", "id", Long.class, "person_id", "id",
+                        engine.rawQuery("select person_id, cast(null as bigint) as id from address"), CollectionBuildStrategy.forLongArray()))
+                .list());
+        assertThrows(IllegalArgumentException.class, () -> lombokMapper
+                .query(OwnerWithAddressIds.class, "select * from person order by id")
+                .withInjectedProperty(new InjectedScalarToManyProperty<>("addressNumbers", "id", Long.class, "person_id", "n",
+                        engine.rawQuery("select person_id, cast(null as int) as n from address"), CollectionBuildStrategy.forIntArray()))
+                .list());
+    }
+
     @Test
     void testOneToMany() {
         final AList<Long> personIds = mapper
@@ -114,5 +396,73 @@ public class OneToManyDemoTest extends AbstractDatabaseTest  {
             assertEquals(ASet.of(Address.of("street13", "city13"), Address.of("street12", "city12"), Address.of("street11", "city11")), persons.get(0).addresses().toSet());
             assertEquals(ASet.of(Address.of("street23", "city23"), Address.of("street22", "city22"), Address.of("street21", "city21")), persons.get(1).addresses().toSet());
         }
+
+        {
+            final AList<PersonWithAddresses> persons = mapper
+                    .query(PersonWithAddresses.class, "select * from person where id in(?,?) order by id asc", 1, 2)
+                    .withOneToMany("addresses", "id desc", 2)
+                    .list();
+
+            assertEquals(AList.of(
+                    PersonWithAddresses.of(personId1, "Arno1", AList.of(Address.of("street13", "city13"), Address.of("street12", "city12"))),
+                    PersonWithAddresses.of(personId2, "Arno2", AList.of(Address.of("street23", "city23"), Address.of("street22", "city22")))
+            ), persons);
+        }
+
+        {
+            final AList<PersonWithAddresses> persons = mapper
+                    .query(PersonWithAddresses.class, "select * from person where id in(?,?) order by id asc", 1, 2)
+                    .withOneToMany("addresses", sql("city<>?", "city12"))
+                    .list();
+
+            assertEquals(2, persons.size());
+            assertEquals(ASet.of(Address.of("street13", "city13"), Address.of("street11", "city11")), persons.get(0).addresses().toSet());
+            assertEquals(ASet.of(Address.of("street23", "city23"), Address.of("street22", "city22"), Address.of("street21", "city21")), persons.get(1).addresses().toSet());
+        }
+
+        {
+            final InjectedScalarToManyProperty<?, String[]> cities = new InjectedScalarToManyProperty<>("cities", "id", Long.class, "person_id", "city",
+                    engine.rawQuery("select person_id, city from address order by city desc"), CollectionBuildStrategy.forStringArray());
+            final Map<Object, String[]> citiesByPerson = cities.mementoPerQuery(conn, PersonWithAddresses.class, sql("select * from person"));
+
+            assertArrayEquals(new String[] {"city13", "city12", "city11"}, citiesByPerson.get(personId1));
+            assertArrayEquals(new String[] {"city33", "city32", "city31"}, citiesByPerson.get(personId3));
+            assertFalse(citiesByPerson.containsKey(personId4));
+
+            final InjectedScalarToManyProperty<?, long[]> addressIds = new InjectedScalarToManyProperty<>("addressIds", "id", Long.class, "person_id", "id",
+                    engine.rawQuery("select person_id, id from address"), CollectionBuildStrategy.forLongArray());
+            assertEquals(3, addressIds.mementoPerQuery(conn, PersonWithAddresses.class, sql("select * from person")).get(personId2).length);
+        }
+
+        {
+            final List<RelationLoadingStrategy> decisions = new ArrayList<>();
+            final AdaptiveRelationLoading adaptiveLoading = new AdaptiveRelationLoading(1, 1000)
+                    .withListener((owningClass, propertyName, strategy, observations) -> decisions.add(strategy));
+            final SqlMapper adaptiveMapper = new SqlMapperBuilder()
+                    .withDefaultPkName("id")
+                    .withDefaultConnectionSupplier(() -> conn)
+                    .withBeanStyle(SqlMapperBuilder.BeanStyle.immutables)
+                    .withAdaptiveRelationLoading(adaptiveLoading)
+                    .build(DatabaseDialect.H2);
+
+            for (int i=0; i<3; i++) {
+                final AList<PersonWithAddresses> persons = adaptiveMapper
+                        .query(PersonWithAddresses.class, "select * from person where id in(?,?) order by id asc", 1, 2)
+                        .withOneToMany("addresses")
+                        .list();
+
+                assertEquals(2, persons.size());
+                assertEquals(ASet.of(Address.of("street13", "city13"), Address.of("street12", "city12"), Address.of("street11", "city11")), persons.get(0).addresses().toSet());
+                assertEquals(ASet.of(Address.of("street23", "city23"), Address.of("street22", "city22"), Address.of("street21", "city21")), persons.get(1).addresses().toSet());
+            }
+
+            // both strategies are tried once before the cheaper one is chosen
+            assertEquals(Arrays.asList(RelationLoadingStrategy.SUBQUERY, RelationLoadingStrategy.COLLECTED_KEYS), decisions.subList(0, 2));
+            final AdaptiveRelationLoading.Observations collectedKeys = adaptiveLoading
+                    .observations(PersonWithAddresses.class, "addresses")
+                    .get(RelationLoadingStrategy.COLLECTED_KEYS);
+            assertEquals(2.0, collectedKeys.avgMasterRows().get());
+            assertEquals(6.0, collectedKeys.avgDetailRows());
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.ajjpj.asqlmapper.demo.rel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.SQLException;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Wither;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.ajjpj.acollections.AList;
+import com.ajjpj.asqlmapper.AbstractDatabaseTest;
+import com.ajjpj.asqlmapper.SqlMapperBuilder;
+import com.ajjpj.asqlmapper.javabeans.annotations.OneToMany;
+import com.ajjpj.asqlmapper.javabeans.annotations.Table;
+import com.ajjpj.asqlmapper.javabeans.columnnames.SnakeCaseColumnNameExtractor;
+import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
+import com.ajjpj.asqlmapper.mapper.SqlMapper;
+
+class RecursiveRelationDemoTest extends AbstractDatabaseTest {
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("category")
+    static class Category {
+        @Wither Long id;
+        Long parentId;
+        String name;
+        @Wither AList<Category> children;
+
+        @OneToMany
+        public AList<Category> getChildren() {
+            return children;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("category")
+    static class CategoryWithParent {
+        @Wither Long id;
+        Long parentId;
+        String name;
+        @Wither CategoryWithParent parent;
+    }
+
+    private SqlMapper mapper;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        executeUpdate("create table category(id bigserial primary key, parent_id bigint references category, name varchar(200))");
+
+        mapper = new SqlMapperBuilder()
+                .withDefaultConnectionSupplier(() -> conn)
+                .withBeanStyle(SqlMapperBuilder.BeanStyle.lombok)
+                .withColumnNameExtractor(new SnakeCaseColumnNameExtractor())
+                .build(DatabaseDialect.H2);
+
+        // 1 <- 2 <- 3 <- 4 <- 5, and 1 <- 6
+        insert(1, null);
+        insert(2, 1L);
+        insert(3, 2L);
+        insert(4, 3L);
+        insert(5, 4L);
+        insert(6, 1L);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        executeUpdate("drop table category");
+    }
+
+    private void insert(long id, Long parentId) {
+        if (parentId == null) {
+            mapper.engine().executeUpdate("insert into category(id, name) values (?,?)", id, "c" + id);
+        }
+        else {
+            mapper.engine().executeUpdate("insert into category(id, parent_id, name) values (?,?,?)", id, parentId, "c" + id);
+        }
+    }
+
+    private void insertCycle() {
+        insert(7, null);
+        insert(8, 7L);
+        mapper.engine().executeUpdate("update category set parent_id=? where id=?", 8L, 7L);
+    }
+
+    @Test
+    void testRecursiveOneToManyDeeperThanMaxDepth() {
+        final Category root = mapper
+                .query(Category.class, "select * from category where id=?", 1L)
+                .withRecursiveOneToMany("children", 2)
+                .single();
+
+        assertEquals(AList.of(2L, 6L), root.getChildren().map(Category::getId));
+
+        final Category c2 = root.getChildren().get(0);
+        assertEquals(AList.of(3L), c2.getChildren().map(Category::getId));
+        assertEquals(AList.empty(), root.getChildren().get(1).getChildren());
+
+        // beyond the depth limit, the property holds an empty collection although there are more levels
+        assertEquals(AList.empty(), c2.getChildren().get(0).getChildren());
+    }
+
+    @Test
+    void testRecursiveOneToManyWithLeaves() {
+        final AList<Category> categories = mapper
+                .query(Category.class, "select * from category where id in (?,?) order by id", 4L, 5L)
+                .withRecursiveOneToMany("children", 10)
+                .list();
+
+        assertEquals(AList.of(5L), categories.get(0).getChildren().map(Category::getId));
+        assertEquals(AList.empty(), categories.get(0).getChildren().get(0).getChildren());
+        assertEquals(AList.empty(), categories.get(1).getChildren());
+    }
+
+    @Test
+    void testRecursiveToOne() {
+        final CategoryWithParent leaf = mapper
+                .query(CategoryWithParent.class, "select * from category where id=?", 5L)
+                .withRecursiveToOne("parent", 2)
+                .single();
+
+        assertEquals(Long.valueOf(4), leaf.getParent().getId());
+        assertEquals(Long.valueOf(3), leaf.getParent().getParent().getId());
+        // beyond the depth limit, the parent is null although there are more levels
+        assertNull(leaf.getParent().getParent().getParent());
+
+        final CategoryWithParent nearRoot = mapper
+                .query(CategoryWithParent.class, "select * from category where id=?", 3L)
+                .withRecursiveToOne("parent", 10)
+                .single();
+        assertEquals(Long.valueOf(2), nearRoot.getParent().getId());
+        assertEquals(Long.valueOf(1), nearRoot.getParent().getParent().getId());
+        assertNull(nearRoot.getParent().getParent().getParent());
+
+        final CategoryWithParent root = mapper
+                .query(CategoryWithParent.class, "select * from category where id=?", 1L)
+                .withRecursiveToOne("parent", 10)
+                .single();
+        assertNull(root.getParent());
+    }
+
+    @Test
+    void testRecursiveOneToManyWithCycle() {
+        insertCycle();
+
+        final Category c7 = mapper
+                .query(Category.class, "select * from category where id=?", 7L)
+                .withRecursiveOneToMany("children", 3)
+                .single();
+
+        final Category c8 = c7.getChildren().get(0);
+        assertEquals(Long.valueOf(8), c8.getId());
+        assertEquals(Long.valueOf(7), c8.getChildren().get(0).getId());
+        assertEquals(Long.valueOf(8), c8.getChildren().get(0).getChildren().get(0).getId());
+        assertEquals(AList.empty(), c8.getChildren().get(0).getChildren().get(0).getChildren());
+    }
+
+    @Test
+    void testRecursiveToOneWithCycle() {
+        insertCycle();
+
+        final CategoryWithParent c7 = mapper
+                .query(CategoryWithParent.class, "select * from category where id=?", 7L)
+                .withRecursiveToOne("parent", 3)
+                .single();
+
+        assertEquals(Long.valueOf(8), c7.getParent().getId());
+        assertEquals(Long.valueOf(7), c7.getParent().getParent().getId());
+        assertEquals(Long.valueOf(8), c7.getParent().getParent().getParent().getId());
+        assertNull(c7.getParent().getParent().getParent().getParent());
+    }
+}
@@ -2,7 +2,19 @@ package com.ajjpj.asqlmapper.demo.simple;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import lombok.Builder;
 import lombok.Value;
@@ -10,16 +22,24 @@ import lombok.experimental.Wither;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import com.ajjpj.acollections.AList;
 import com.ajjpj.acollections.AMap;
+import com.ajjpj.acollections.util.AOption;
 import com.ajjpj.asqlmapper.AbstractDatabaseTest;
 import com.ajjpj.asqlmapper.SqlMapperBuilder;
 import com.ajjpj.asqlmapper.core.AInsert;
+import com.ajjpj.asqlmapper.core.BulkLoadResult;
 import com.ajjpj.asqlmapper.core.AQuery;
 import com.ajjpj.asqlmapper.core.SqlEngine;
 import com.ajjpj.asqlmapper.core.SqlSnippet;
+import com.ajjpj.asqlmapper.core.common.IdentityMap;
 import com.ajjpj.asqlmapper.core.listener.LoggingListener;
+import com.ajjpj.asqlmapper.javabeans.annotations.Table;
+import com.ajjpj.asqlmapper.mapper.BeanSnapshots;
+import com.ajjpj.asqlmapper.mapper.ChunkedUpdateProgress;
 import com.ajjpj.asqlmapper.mapper.DatabaseDialect;
 import com.ajjpj.asqlmapper.mapper.SqlMapper;
+import com.ajjpj.asqlmapper.mapper.WriteBehindBuffer;
 
 class DemoTest extends AbstractDatabaseTest {
     @SuppressWarnings("WeakerAccess")
@@ -29,6 +49,20 @@ class DemoTest extends AbstractDatabaseTest {
         String name;
     }
 
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("sequenced_person")
+    static class SequencedPerson {
+        @Wither long id;
+        String name;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    @Value @Builder @Table("person")
+    static class PersonWithOptionalId {
+        @Wither Long id;
+        String name;
+    }
+
     private SqlMapperBuilder builder = new SqlMapperBuilder()
             .withDefaultPkName("id")
             .withBeanStyle(SqlMapperBuilder.BeanStyle.lombok)
@@ -62,6 +96,18 @@ class DemoTest extends AbstractDatabaseTest {
         assertEquals(new Person(2, "Arno"), engine.query(Person.class, "select * from person where id=?", 2).single());
     }
 
+    @Test
+    void testColumnarBatchUpdate() {
+        final int[] updateCounts = engine.columnarBatchUpdate("insert into person (id, name) values (?,?)")
+                .withLongColumn(new long[] {10, 11, 12})
+                .withColumn(new String[] {"a", "b", "c"})
+                .withChunkSize(2)
+                .execute();
+
+        assertArrayEquals(new int[] {1, 1, 1}, updateCounts);
+        assertEquals(new Person(12, "c"), engine.query(Person.class, "select * from person where id=?", 12).single());
+    }
+
     @Test
     void testMapper() {
         final SqlMapper mapper = builder.build(DatabaseDialect.H2);
@@ -88,4 +134,386 @@ class DemoTest extends AbstractDatabaseTest {
         assertEquals(0L, engine.longQuery("select count(*) from person where id=?", 2).single().longValue());
         assertFalse(mapper.delete(Person.class, 2L));
     }
+
+    @Test
+    void testInsertManyInChunks() {
+        final SqlMapper mapper = builder.build(new DatabaseDialect.H2Dialect() {
+            @Override public int maxBindParameters () {
+                return 2;
+            }
+        });
+
+        final List<Person> inserted = mapper.insertMany(AList.of(new Person(0, "a"), new Person(0, "b"), new Person(0, "c"), new Person(0, "d"), new Person(0, "e")));
+        assertEquals(AList.of(new Person(1, "a"), new Person(2, "b"), new Person(3, "c"), new Person(4, "d"), new Person(5, "e")), inserted);
+        assertEquals(5L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testInsertManyBatchedWithGeneratedKeys() {
+        final SqlMapper mapper = builder.build(new DatabaseDialect.H2Dialect() {
+            @Override public boolean supportsBatchGeneratedKeys () {
+                return true;
+            }
+        });
+
+        // more than one JDBC batch
+        final List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 1005; i++) {
+            persons.add(new Person(0, "p" + i));
+        }
+
+        final List<Person> inserted = mapper.insertMany(persons);
+        assertEquals(1005, inserted.size());
+        for (int i = 0; i < inserted.size(); i++) {
+            assertEquals(new Person(i + 1, "p" + i), inserted.get(i));
+        }
+        assertEquals(inserted, engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testInsertAll() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+
+        final List<List<Person>> chunks = new ArrayList<>();
+        final long numInserted = mapper.insertAll(Stream.of("a", "b", "c", "d", "e").map(name -> new Person(0, name)), 2, chunks::add);
+
+        assertEquals(5L, numInserted);
+        assertEquals(AList.of(2, 2, 1), AList.from(chunks).map(List::size));
+        assertEquals(AList.of(new Person(5, "e")), chunks.get(2));
+        assertEquals(5L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testUpsert() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        mapper.insert(new Person(0, "Arno"));
+
+        assertEquals(2L, mapper.upsertMany(AList.of(new Person(1, "Arno Haase"), new Person(7, "Albrecht"))));
+        assertEquals(0L, mapper.upsertMany(AList.empty()));
+        assertThrows(IllegalArgumentException.class, () -> mapper.upsert(new PersonWithOptionalId(null, "x")));
+
+        assertEquals(AList.of(new Person(1, "Arno Haase"), new Person(7, "Albrecht")), engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testDeleteMany() {
+        final SqlMapper mapper = builder.build(new DatabaseDialect.H2Dialect() {
+            @Override public int maxBindParameters () {
+                return 2;
+            }
+        });
+        final List<Person> persons = mapper.insertMany(AList.of(new Person(0, "a"), new Person(0, "b"), new Person(0, "c"), new Person(0, "d")));
+
+        assertEquals(3L, mapper.deleteMany(Person.class, AList.of(1L, 2L, 3L, 99L)));
+        assertEquals(1L, mapper.deleteManyBeans(persons));
+        assertEquals(0L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testPatchMany() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        mapper.insertMany(AList.of(new Person(0, "a"), new Person(0, "b"), new Person(0, "c")));
+
+        final Map<Object, Map<String, Object>> patches = new LinkedHashMap<>();
+        patches.put(1L, AMap.of("name", "x"));
+        patches.put(99L, AMap.of("name", "y"));
+        patches.put(2L, AMap.of("name", "z"));
+        patches.put(3L, AMap.of("no-mapped-prop", "pling"));
+
+        final Map<Object, Boolean> result = mapper.patchMany(Person.class, patches);
+        assertEquals(AList.of(1L, 99L, 2L, 3L), AList.from(result.keySet()));
+        assertEquals(AList.of(true, false, true, true), AList.from(result.values()));
+
+        assertEquals(AList.of(new Person(1, "x"), new Person(2, "z"), new Person(3, "c")), engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testUpdateWhereAndDeleteWhere() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        mapper.insertMany(AList.of(new Person(0, "a"), new Person(0, "b"), new Person(0, "c")));
+
+        assertEquals(2, mapper.updateWhere(Person.class, AMap.of("name", "x"), SqlSnippet.sql("id>=?", 2L)));
+        assertEquals(AList.of(new Person(1, "a"), new Person(2, "x"), new Person(3, "x")), engine.query(Person.class, "select * from person order by id").list());
+
+        assertThrows(IllegalArgumentException.class, () -> mapper.updateWhere(Person.class, AMap.of("id", 5L), SqlSnippet.sql("1=1")));
+        assertThrows(IllegalArgumentException.class, () -> mapper.updateWhere(Person.class, AMap.of("nonExisting", "y"), SqlSnippet.sql("1=1")));
+
+        assertEquals(2, mapper.deleteWhere(Person.class, SqlSnippet.sql("name=?", "x")));
+        assertEquals(AList.of(new Person(1, "a")), engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testChunkedUpdate() throws SQLException {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        final List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            persons.add(new Person(0, "p" + i));
+        }
+        mapper.insertMany(persons);
+        // the chunked update runs on connections of its own
+        conn.commit();
+
+        final List<ChunkedUpdateProgress> progress = new ArrayList<>();
+        final ChunkedUpdateProgress result = mapper
+                .chunkedUpdate("person", range -> SqlSnippet.concat(SqlSnippet.sql("UPDATE person SET name=? WHERE id<>5 AND", "x"), range))
+                .withChunkSize(3)
+                .withConnectionSupplier(this::newConnection)
+                .withProgressListener(progress::add)
+                .execute();
+
+        assertEquals(4, progress.size());
+        assertEquals(AList.of(4L, 7L, 10L, 11L), AList.from(progress).map(ChunkedUpdateProgress::nextPk));
+        assertEquals(AList.of(3L, 5L, 8L, 9L), AList.from(progress).map(ChunkedUpdateProgress::numRows));
+        assertTrue(result.isDone());
+        assertEquals(1L, engine.longQuery("select count(*) from person where name<>'x'").single());
+
+        // resuming from a checkpoint processes only the remaining keys
+        final ChunkedUpdateProgress resumed = mapper
+                .chunkedUpdate("person", range -> SqlSnippet.concat(SqlSnippet.sql("DELETE FROM person WHERE"), range))
+                .withChunkSize(3)
+                .withStartPk(progress.get(1).nextPk())
+                .execute();
+        assertEquals(2, resumed.numChunks());
+        assertEquals(4, resumed.numRows());
+        assertEquals(6L, engine.longQuery("select count(*) from person").single());
+    }
+
+    @Test
+    void testChunkedUpdateWithExtremeKeys() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        engine.executeUpdate("insert into person(id, name) values (?,?), (?,?), (?,?)", Long.MIN_VALUE, "a", 0L, "b", Long.MAX_VALUE, "c");
+
+        final List<ChunkedUpdateProgress> progress = new ArrayList<>();
+        final ChunkedUpdateProgress result = mapper
+                .chunkedUpdate("person", range -> SqlSnippet.concat(SqlSnippet.sql("UPDATE person SET name=? WHERE", "x"), range))
+                .withChunkSize(Long.MAX_VALUE)
+                .withProgressListener(progress::add)
+                .execute();
+
+        assertEquals(AList.of(-1L, Long.MAX_VALUE - 1, Long.MAX_VALUE), AList.from(progress).map(ChunkedUpdateProgress::nextPk));
+        assertEquals(AList.of(false, false, true), AList.from(progress).map(ChunkedUpdateProgress::isDone));
+        assertEquals(3, result.numRows());
+        assertEquals(0L, engine.longQuery("select count(*) from person where name<>'x'").single());
+    }
+
+    @Test
+    void testBulkLoader() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+
+        final BulkLoadResult result = mapper.<Person>bulkLoader(this::newConnection)
+                .withNumWorkers(3)
+                .withChunkSize(100)
+                .withPartitionKey(Person::getName)
+                .withChunkOrder(Comparator.comparing(Person::getName))
+                .load(IntStream.range(0, 1000).mapToObj(i -> new Person(0, "p" + i)));
+
+        assertFalse(result.hasErrors());
+        assertEquals(3, result.workers().size());
+        assertEquals(1000, result.numRows());
+        assertEquals(1000L, engine.longQuery("select count(*) from person").single());
+    }
+
+    @Test
+    void testBulkLoaderWithFailedChunk() {
+        final BulkLoadResult result = engine.bulkLoader("insert into person(id, name) values(?, ?)", this::newConnection)
+                .withNumWorkers(1)
+                .withChunkSize(2)
+                .load(Stream.<List<?>>of(AList.of(100L, "a"), AList.of(101L, "b"), AList.of(100L, "c"), AList.of(100L, "d")));
+
+        assertTrue(result.hasErrors());
+        assertEquals(2, result.numRows());
+        assertEquals(2, result.numFailedRows());
+        assertEquals(1, result.workers().get(0).errors().size());
+        assertEquals(AList.of("a", "b"), engine.stringQuery("select name from person order by id").list());
+    }
+
+    private Connection newConnection() {
+        try {
+            return ds.getConnection();
+        }
+        catch (SQLException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    private Connection newTransactionalConnection() {
+        final Connection result = newConnection();
+        try {
+            result.setAutoCommit(false);
+        }
+        catch (SQLException exc) {
+            throw new RuntimeException(exc);
+        }
+        return result;
+    }
+
+    @Test
+    void testUpdateWithSnapshots() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        mapper.insertMany(AList.of(new Person(0, "a"), new Person(0, "b")));
+
+        final BeanSnapshots snapshots = mapper.snapshots();
+        final List<Person> persons = mapper.query(Person.class, "select * from person order by id").withSnapshots(snapshots).list();
+        assertEquals(2, snapshots.size());
+
+        // unchanged beans are not written, so removing the row behind the mapper's back goes unnoticed
+        engine.executeUpdate("delete from person where id=?", 2L);
+        assertTrue(mapper.update(snapshots, persons.get(1)));
+
+        assertEquals(AList.of(true, true), AList.from(mapper.batchUpdate(snapshots, AList.of(new Person(1, "x"), persons.get(1)))));
+        assertEquals(AList.of(new Person(1, "x")), engine.query(Person.class, "select * from person order by id").list());
+
+        snapshots.forget(Person.class, 2L);
+        assertFalse(mapper.update(snapshots, persons.get(1)));
+    }
+
+    @Test
+    void testWriteBehindBuffer() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(mapper, this::newConnection, 100, Duration.ofMinutes(1))) {
+            final CompletableFuture<Person> a = buffer.insert(new Person(0, "a"));
+            final CompletableFuture<Person> b = buffer.insert(new Person(0, "b"));
+            assertFalse(a.isDone());
+            assertEquals(2, buffer.numPending());
+
+            buffer.flush();
+            assertEquals(new Person(1, "a"), a.join());
+            assertEquals(new Person(2, "b"), b.join());
+
+            // repeated updates of the same row are merged, and only the last one is written
+            final CompletableFuture<Boolean> x = buffer.update(new Person(1, "x"));
+            final CompletableFuture<Boolean> y = buffer.update(new Person(1, "y"));
+            assertEquals(2, buffer.numPending());
+
+            buffer.flush();
+            assertTrue(x.join());
+            assertTrue(y.join());
+        }
+
+        assertEquals(AList.of(new Person(1, "y"), new Person(2, "b")), engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testWriteBehindBufferFlushTriggers() throws Exception {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(mapper, this::newConnection, 2, Duration.ofMinutes(1))) {
+            final CompletableFuture<Person> a = buffer.insert(new Person(0, "a"));
+            final CompletableFuture<Person> b = buffer.insert(new Person(0, "b"));
+
+            // reaching the maximum number of buffered writes triggers a flush in the background
+            assertEquals(new Person(1, "a"), a.get(10, TimeUnit.SECONDS));
+            assertEquals(new Person(2, "b"), b.get(10, TimeUnit.SECONDS));
+        }
+
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(mapper, this::newConnection, 100, Duration.ofMillis(50))) {
+            final CompletableFuture<Person> c = buffer.insert(new Person(0, "c"));
+
+            // the maximum delay triggers a flush in the background
+            assertEquals(new Person(3, "c"), c.get(10, TimeUnit.SECONDS));
+            assertEquals(0, buffer.numPending());
+        }
+
+        assertEquals(3L, engine.longQuery("select count(*) from person").single().longValue());
+    }
+
+    @Test
+    void testWriteBehindBufferFailedFlush() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(mapper, this::newTransactionalConnection, 100, Duration.ofMinutes(1))) {
+            buffer.insert(new Person(0, "a"));
+            buffer.flush();
+
+            // the insert succeeds, but the update exceeds the column size, so the entire flush is rolled back
+            final CompletableFuture<Person> b = buffer.insert(new Person(0, "b"));
+            final CompletableFuture<Boolean> tooLong = buffer.update(new Person(1, String.join("", Collections.nCopies(201, "x"))));
+            assertThrows(Exception.class, buffer::flush);
+
+            assertTrue(b.isCompletedExceptionally());
+            assertTrue(tooLong.isCompletedExceptionally());
+            assertEquals(0, buffer.numPending());
+        }
+
+        assertEquals(AList.of(new Person(1, "a")), engine.query(Person.class, "select * from person order by id").list());
+    }
+
+    @Test
+    void testPkStrategyReplacesExistingKeys() {
+        // strategies other than hi/lo assign a new key to every inserted bean, e.g. to a copy of a loaded bean
+        final SqlMapper mapper = builder
+                .withPkStrategyDecider((c, beanType, tableMetaData) -> pkConn -> AOption.some(42L))
+                .build(DatabaseDialect.H2);
+
+        assertEquals(new Person(42, "a"), mapper.insert(new Person(1000, "a")));
+        assertEquals(AList.of(new Person(42, "a")), engine.query(Person.class, "select * from person").list());
+    }
+
+    @Test
+    void testHiLoSequencePk() throws SQLException {
+        executeUpdate("create sequence sequenced_person_seq start with 1 increment by 10");
+        executeUpdate("create table sequenced_person(id bigint default next value for sequenced_person_seq primary key, name varchar(200))");
+        try {
+            // hi/lo allocation is opt-in, so by default keys are taken from the beans
+            assertEquals(5L, builder.build(DatabaseDialect.H2).insert(new SequencedPerson(5, "manual")).getId());
+            executeUpdate("delete from sequenced_person");
+
+            final SqlMapper mapper = builder.withHiLoSequences(10).build(DatabaseDialect.H2);
+
+            final List<SequencedPerson> persons = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                persons.add(new SequencedPerson(0, "p" + i));
+            }
+            final AList<SequencedPerson> inserted = mapper.insertMany(persons);
+            assertEquals(AList.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L), inserted.map(SequencedPerson::getId));
+
+            // single values drawn through the column default do not collide with allocated blocks
+            executeUpdate("insert into sequenced_person(name) values ('x')");
+            assertEquals(Long.valueOf(21), engine.longQuery("select id from sequenced_person where name=?", "x").single());
+            assertEquals(13L, mapper.insert(new SequencedPerson(0, "y")).getId());
+
+            // explicit keys are kept
+            assertEquals(1000L, mapper.insert(new SequencedPerson(1000, "z")).getId());
+            assertEquals(AList.of(1001L, 14L), mapper.insertMany(AList.of(new SequencedPerson(1001, "a"), new SequencedPerson(0, "b"))).map(SequencedPerson::getId));
+
+            // the block size must match the sequence's increment
+            assertThrows(IllegalArgumentException.class, () ->
+                    new SqlMapperBuilder().withDefaultPkName("id").withBeanStyle(SqlMapperBuilder.BeanStyle.lombok).withDefaultConnectionSupplier(() -> conn)
+                            .withHiLoSequences(50).build(DatabaseDialect.H2).insert(new SequencedPerson(0, "c")));
+        }
+        finally {
+            executeUpdate("drop table sequenced_person");
+            executeUpdate("drop sequence sequenced_person_seq");
+        }
+    }
+
+    @Test
+    void testIdentityMap() {
+        final SqlMapper mapper = builder.build(DatabaseDialect.H2);
+        mapper.insert(new Person(0, "Arno"));
+        mapper.insert(new Person(0, "Albrecht"));
+
+        final IdentityMap identityMap = mapper.identityMap();
+        final List<Person> persons = mapper
+                .query(Person.class, "select p.* from person p, person q order by p.id")
+                .withIdentityMap(identityMap)
+                .list();
+
+        assertEquals(4, persons.size());
+        assertSame(persons.get(0), persons.get(1));
+        assertSame(persons.get(2), persons.get(3));
+        assertNotSame(persons.get(1), persons.get(2));
+
+        assertEquals(2, identityMap.size());
+        assertEquals(2, identityMap.numHits());
+        assertEquals(2, identityMap.numMisses());
+
+        // instances are only shared between rows with the same columns, so a narrower load is not reused
+        final Person narrow = mapper.query(Person.class, "select id from person where id=?", 1L).withIdentityMap(identityMap).single();
+        assertEquals(new Person(1, null), narrow);
+        final Person full = mapper.query(Person.class, "select * from person where id=?", 1L).withIdentityMap(identityMap).single();
+        assertSame(persons.get(0), full);
+        assertEquals(3, identityMap.size());
+    }
 }
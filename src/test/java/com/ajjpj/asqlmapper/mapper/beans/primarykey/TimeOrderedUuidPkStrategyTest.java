@@ -0,0 +1,40 @@
+package com.ajjpj.asqlmapper.mapper.beans.primarykey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeOrderedUuidPkStrategyTest {
+    @Test void testLayout() {
+        final long millis = 1_700_000_000_000L;
+        final TimeOrderedUuidPkStrategy strategy = new TimeOrderedUuidPkStrategy(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+
+        final UUID uuid = strategy.newUuid();
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(millis, TimeOrderedUuidPkStrategy.timestampOf(uuid));
+    }
+
+    @Test void testMonotonicWithinMillisecond() {
+        final TimeOrderedUuidPkStrategy strategy = new TimeOrderedUuidPkStrategy(Clock.fixed(Instant.ofEpochMilli(1_700_000_000_000L), ZoneOffset.UTC));
+
+        // more keys than the counter can hold, forcing the timestamp to advance beyond the clock
+        UUID prev = strategy.newUuid();
+        for (int i = 0; i < 10_000; i++) {
+            final UUID next = strategy.newUuid();
+            assertTrue(compareUnsigned(prev, next) < 0, prev + " / " + next);
+            prev = next;
+        }
+        assertEquals(1_700_000_000_002L, TimeOrderedUuidPkStrategy.timestampOf(prev));
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        final int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return result != 0 ? result : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}